@@ -0,0 +1,52 @@
+package com.pswied.tubingen.batch;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.service.ReconciliationService;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Headless batch entry point: reconciles two local files and writes the summary and
+ * results to a directory, without a web server.
+ * <p>
+ * Only the beans the engine needs are registered (no component scan, no web
+ * auto-configuration) to keep context startup short; see the {@code batch} Maven
+ * profile for the AOT and AppCDS tuned build. Deliberately not a {@code @Configuration}
+ * so that the web application's component scan does not pick it up.
+ * Built with {@code ./mvnw -Pbatch package}, then run as:
+ * <pre>
+ * java -XX:SharedArchiveFile=target/tubingen-batch.jsa -Dspring.aot.enabled=true \
+ *      -jar target/tubingen-batch.jar --a=switch.json --b=core.ndjson --out=results [--format=CSV]
+ *      [--tolerance-millis=5000] [--amount-tolerance=0.01] [--max-split-parts=3] [--job-name=Nightly]
+ * </pre>
+ */
+@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, JacksonAutoConfiguration.class})
+@EnableConfigurationProperties({MatchKeyProperties.class, IngestDedupProperties.class})
+@Import({ReconciliationService.class, MatchKeyEngine.class, TransactionStore.class, BatchRunner.class})
+public class BatchApplication {
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs a batch job and returns the process exit code.
+     */
+    public static int run(String... args) {
+        SpringApplication application = new SpringApplicationBuilder(BatchApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .build();
+        return SpringApplication.exit(application.run(args));
+    }
+}
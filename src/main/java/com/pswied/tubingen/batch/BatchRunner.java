@@ -0,0 +1,145 @@
+package com.pswied.tubingen.batch;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pswied.tubingen.model.ExportManifest;
+import com.pswied.tubingen.model.ReconciliationJob;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.service.ExportWriter;
+import com.pswied.tubingen.service.ReconciliationService;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one reconciliation over two local files. Inputs are JSON arrays or NDJSON of
+ * {@link TransactionRecord}, streamed and ingested in batches exactly like {@code /api/ingest}.
+ * Writes {@code summary.json} and one gzip-compressed results file per match type.
+ */
+public class BatchRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+    private static final int INGEST_BATCH_SIZE = 10_000;
+
+    private final ObjectMapper objectMapper;
+    private final MatchKeyEngine matchKeyEngine;
+    private final TransactionStore transactionStore;
+    private final ReconciliationService reconciliationService;
+    private int exitCode = EXIT_OK;
+
+    public BatchRunner(ObjectMapper objectMapper, MatchKeyEngine matchKeyEngine, TransactionStore transactionStore,
+                       ReconciliationService reconciliationService) {
+        this.objectMapper = objectMapper;
+        this.matchKeyEngine = matchKeyEngine;
+        this.transactionStore = transactionStore;
+        this.reconciliationService = reconciliationService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        String fileA = option(args, "a", null);
+        String fileB = option(args, "b", null);
+        String out = option(args, "out", null);
+        if (fileA == null || fileB == null || out == null) {
+            log.error("Usage: --a=<file> --b=<file> --out=<dir> [--format=NDJSON|CSV] [--tolerance-millis=0] "
+                    + "[--amount-tolerance=0] [--max-split-parts=0] [--job-name=Batch Reconciliation]");
+            exitCode = EXIT_USAGE;
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        log.info("Context ready {} ms after JVM start", ManagementFactory.getRuntimeMXBean().getUptime());
+
+        try {
+            int countA = ingest("A", Path.of(fileA));
+            int countB = ingest("B", Path.of(fileB));
+            long ingestedAt = System.nanoTime();
+
+            ReconciliationJob job = new ReconciliationJob(option(args, "job-name", "Batch Reconciliation"));
+            List<ReconciliationMatch> matches = reconciliationService.reconcile(
+                    transactionStore.snapshot("A"),
+                    transactionStore.snapshot("B"),
+                    Long.parseLong(option(args, "tolerance-millis", "0")),
+                    new BigDecimal(option(args, "amount-tolerance", "0")),
+                    Integer.parseInt(option(args, "max-split-parts", "0")),
+                    matchKeyEngine.isEnabled()
+            );
+            job.setSummary(reconciliationService.summarize(matches));
+            job.setStatus("COMPLETED");
+            long reconciledAt = System.nanoTime();
+
+            Path outDir = Path.of(out);
+            ExportManifest.Format format = ExportManifest.Format.valueOf(option(args, "format", "NDJSON").toUpperCase());
+            new ExportWriter(objectMapper).write(outDir, matches, format);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(outDir.resolve("summary.json").toFile(), job);
+
+            log.info("Reconciled {} A and {} B records: ingest {} ms, reconcile {} ms, write {} ms",
+                    countA, countB, (ingestedAt - startedAt) / 1_000_000, (reconciledAt - ingestedAt) / 1_000_000,
+                    (System.nanoTime() - reconciledAt) / 1_000_000);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid argument: {}", e.getMessage());
+            exitCode = EXIT_USAGE;
+        } catch (IOException e) {
+            log.error("Batch reconciliation failed", e);
+            exitCode = EXIT_FAILED;
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private int ingest(String source, Path file) throws IOException {
+        if (!Files.isReadable(file)) {
+            throw new IOException("Cannot read " + file);
+        }
+        int count = 0;
+        // A root-level JSON array is unwrapped, so arrays and NDJSON share one streaming path
+        try (MappingIterator<TransactionRecord> records = objectMapper.readerFor(TransactionRecord.class).readValues(file.toFile())) {
+            List<TransactionRecord> batch = new ArrayList<>(INGEST_BATCH_SIZE);
+            while (records.hasNextValue()) {
+                TransactionRecord record = records.nextValue();
+                record.setSource(source);
+                batch.add(record);
+                if (batch.size() == INGEST_BATCH_SIZE) {
+                    count += flush(source, batch);
+                }
+            }
+            count += flush(source, batch);
+        }
+        return count;
+    }
+
+    private int flush(String source, List<TransactionRecord> batch) {
+        int size = batch.size();
+        if (size > 0) {
+            matchKeyEngine.assignKeys(batch);
+            transactionStore.ingest(source, batch);
+            batch.clear();
+        }
+        return size;
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+}
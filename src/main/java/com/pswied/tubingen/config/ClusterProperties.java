@@ -0,0 +1,34 @@
+package com.pswied.tubingen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sharded mode configuration:
+ * <pre>
+ * # on each worker
+ * tubingen.cluster.role=worker
+ * # on the coordinator
+ * tubingen.cluster.role=coordinator
+ * tubingen.cluster.workers=http://localhost:8081,http://localhost:8082
+ * </pre>
+ * The default role, standalone, runs everything in a single instance.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tubingen.cluster")
+public class ClusterProperties {
+    private Role role = Role.STANDALONE;
+    /** Base URLs of the workers, in shard order. Used by the coordinator only. */
+    private List<String> workers = new ArrayList<>();
+
+    public enum Role {
+        STANDALONE,
+        WORKER,
+        COORDINATOR
+    }
+}
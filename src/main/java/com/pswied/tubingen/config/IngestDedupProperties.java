@@ -0,0 +1,34 @@
+package com.pswied.tubingen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ingest-time deduplication, off by default:
+ * <pre>
+ * tubingen.ingest-dedup.enabled=true
+ * tubingen.ingest-dedup.window=PT1H
+ * tubingen.ingest-dedup.buckets=12
+ * </pre>
+ * Each source remembers the transactionIds seen within {@code window} of its newest
+ * transaction timestamp, split into {@code buckets} time buckets that expire as a whole.
+ * At most {@code maxIdsPerSource} ids are kept; the oldest bucket is dropped first.
+ * Duplicates that fall outside the window are still found at job time.
+ * A sharded coordinator with match keys sizes its duplicate check from the same
+ * settings, whether or not {@code enabled} is set.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tubingen.ingest-dedup")
+public class IngestDedupProperties {
+    private boolean enabled;
+    private Duration window = Duration.ofHours(1);
+    private int buckets = 12;
+    private int maxIdsPerSource = 1_000_000;
+    /** Sizes each bucket's Bloom filter. */
+    private int expectedIdsPerBucket = 100_000;
+    private double falsePositiveRate = 0.01;
+}
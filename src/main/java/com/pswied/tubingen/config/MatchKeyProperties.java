@@ -0,0 +1,52 @@
+package com.pswied.tubingen.config;
+
+import com.pswied.tubingen.service.matchkey.ColumnType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Match key configuration, one ordered list of fields per source:
+ * <pre>
+ * tubingen.match-key.sources.A[0].kind=FIXED
+ * tubingen.match-key.sources.A[0].offset=0
+ * tubingen.match-key.sources.A[0].length=6
+ * tubingen.match-key.sources.A[0].type=NUMERIC
+ * tubingen.match-key.sources.B[0].kind=JSON_POINTER
+ * tubingen.match-key.sources.B[0].pointer=/stan
+ * tubingen.match-key.sources.B[0].type=NUMERIC
+ * </pre>
+ * Both sources must be configured, and columns are compared by position, so they must
+ * declare the same column types. When no source is configured, records are matched on transactionId.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tubingen.match-key")
+public class MatchKeyProperties {
+    private Map<String, List<Field>> sources = new HashMap<>();
+
+    @Data
+    public static class Field {
+        private String name;
+        private Kind kind;
+        private ColumnType type = ColumnType.TEXT;
+        // FIXED
+        private int offset;
+        private int length;
+        // DELIMITED
+        private char delimiter = '|';
+        private int index;
+        // JSON_POINTER
+        private String pointer;
+    }
+
+    public enum Kind {
+        FIXED,
+        DELIMITED,
+        JSON_POINTER
+    }
+}
@@ -0,0 +1,84 @@
+package com.pswied.tubingen.controller;
+
+import com.pswied.tubingen.model.ReconciliationJob;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.service.ClusterCoordinator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordinator API of sharded mode. Mirrors the standalone API under {@code /api/cluster}.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+@ConditionalOnProperty(name = "tubingen.cluster.role", havingValue = "coordinator")
+public class ClusterController {
+
+    private final ClusterCoordinator clusterCoordinator;
+
+    // In-memory storage for demo purposes
+    private final Map<String, ReconciliationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<ReconciliationMatch>> finalResults = new ConcurrentHashMap<>();
+
+    public ClusterController(ClusterCoordinator clusterCoordinator) {
+        this.clusterCoordinator = clusterCoordinator;
+    }
+
+    @PostMapping("/ingest")
+    public ResponseEntity<String> ingest(@RequestBody List<TransactionRecord> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            return ResponseEntity.badRequest().body("No transactions provided");
+        }
+
+        String source = transactions.get(0).getSource();
+        if (!"A".equalsIgnoreCase(source) && !"B".equalsIgnoreCase(source)) {
+            return ResponseEntity.badRequest().body("Invalid source. Must be A or B");
+        }
+
+        clusterCoordinator.ingest(transactions);
+
+        return ResponseEntity.ok("Ingested " + transactions.size() + " transactions for source " + source
+                + " across " + clusterCoordinator.shardCount() + " shards");
+    }
+
+    @PostMapping("/reconcile/start")
+    public ResponseEntity<ReconciliationJob> startReconciliation(@RequestBody ReconciliationController.ReconciliationRequest request) {
+        ReconciliationJob job = new ReconciliationJob(request.getJobName());
+
+        List<ReconciliationMatch> matches = clusterCoordinator.reconcile(job, request.getTimestampToleranceMillis(),
+                request.getAmountTolerance(), request.getMaxSplitParts());
+        job.setStatus("COMPLETED");
+
+        jobs.put(job.getJobId(), job);
+        finalResults.put(job.getJobId(), matches);
+
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/recon/{jobId}/status")
+    public ResponseEntity<ReconciliationJob> getJobStatus(@PathVariable String jobId) {
+        ReconciliationJob job = jobs.get(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/recon/{jobId}/results")
+    public ResponseEntity<List<ReconciliationMatch>> getJobResults(@PathVariable String jobId) {
+        List<ReconciliationMatch> matches = finalResults.get(jobId);
+        if (matches == null) {
+            return ResponseEntity.notFound().build();
+        }
+        List<ReconciliationMatch> results = new ArrayList<>(clusterCoordinator.shardResults(jobId));
+        results.addAll(matches);
+        return ResponseEntity.ok(results);
+    }
+}
@@ -1,15 +1,26 @@
 package com.pswied.tubingen.controller;
 
+import com.pswied.tubingen.model.ExportManifest;
 import com.pswied.tubingen.model.ReconciliationJob;
 import com.pswied.tubingen.model.ReconciliationMatch;
 import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.service.ByteRange;
+import com.pswied.tubingen.service.ExportService;
 import com.pswied.tubingen.service.ReconciliationService;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
 import lombok.Data;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -19,15 +30,20 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ReconciliationController {
 
     private final ReconciliationService reconciliationService;
+    private final MatchKeyEngine matchKeyEngine;
+    private final TransactionStore transactionStore;
+    private final ExportService exportService;
     
     // In-memory storage for demo purposes
-    private final List<TransactionRecord> sourceA = new ArrayList<>();
-    private final List<TransactionRecord> sourceB = new ArrayList<>();
     private final Map<String, ReconciliationJob> jobs = new ConcurrentHashMap<>();
     private final Map<String, List<ReconciliationMatch>> jobResults = new ConcurrentHashMap<>();
 
-    public ReconciliationController(ReconciliationService reconciliationService) {
+    public ReconciliationController(ReconciliationService reconciliationService, MatchKeyEngine matchKeyEngine,
+                                    TransactionStore transactionStore, ExportService exportService) {
         this.reconciliationService = reconciliationService;
+        this.matchKeyEngine = matchKeyEngine;
+        this.transactionStore = transactionStore;
+        this.exportService = exportService;
     }
 
     @PostMapping("/ingest")
@@ -37,15 +53,17 @@ public class ReconciliationController {
         }
         
         String source = transactions.get(0).getSource();
-        if ("A".equalsIgnoreCase(source)) {
-            sourceA.addAll(transactions);
-        } else if ("B".equalsIgnoreCase(source)) {
-            sourceB.addAll(transactions);
-        } else {
+        if (!"A".equalsIgnoreCase(source) && !"B".equalsIgnoreCase(source)) {
             return ResponseEntity.badRequest().body("Invalid source. Must be A or B");
         }
+
+        // Parse payloads once here so that jobs join on precomputed keys
+        matchKeyEngine.assignKeys(transactions);
+
+        int duplicates = transactionStore.ingest(source, transactions);
         
-        return ResponseEntity.ok("Ingested " + transactions.size() + " transactions for source " + source);
+        return ResponseEntity.ok("Ingested " + transactions.size() + " transactions for source " + source
+                + (duplicates > 0 ? " (" + duplicates + " duplicates set aside)" : ""));
     }
 
     @PostMapping("/reconcile/start")
@@ -53,10 +71,12 @@ public class ReconciliationController {
         ReconciliationJob job = new ReconciliationJob(request.getJobName());
         
         List<ReconciliationMatch> matches = reconciliationService.reconcile(
-                new ArrayList<>(sourceA), 
-                new ArrayList<>(sourceB), 
+                transactionStore.snapshot("A"),
+                transactionStore.snapshot("B"),
                 request.getTimestampToleranceMillis(), 
-                request.getAmountTolerance()
+                request.getAmountTolerance(),
+                request.getMaxSplitParts(),
+                matchKeyEngine.isEnabled()
         );
         
         job.setSummary(reconciliationService.summarize(matches));
@@ -86,6 +106,57 @@ public class ReconciliationController {
         return ResponseEntity.ok(results);
     }
 
+    @PostMapping("/recon/{jobId}/export")
+    public ResponseEntity<ExportManifest> startExport(@PathVariable String jobId,
+                                                      @RequestParam(defaultValue = "NDJSON") ExportManifest.Format format) {
+        List<ReconciliationMatch> results = jobResults.get(jobId);
+        if (results == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.accepted().body(exportService.startExport(jobId, results, format));
+    }
+
+    @GetMapping("/recon/{jobId}/export")
+    public ResponseEntity<ExportManifest> getExport(@PathVariable String jobId) {
+        ExportManifest manifest = exportService.getManifest(jobId);
+        if (manifest == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(manifest);
+    }
+
+    /**
+     * Downloads an export file, honouring a single-range {@code Range} header.
+     * The body is streamed from the file channel, never loaded into memory.
+     */
+    @GetMapping("/recon/{jobId}/export/{fileName}")
+    public ResponseEntity<StreamingResponseBody> downloadExport(@PathVariable String jobId, @PathVariable String fileName,
+                                                                @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) throws IOException {
+        Path file = exportService.exportFile(jobId, fileName);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long size = Files.size(file);
+        ByteRange range = ByteRange.parse(rangeHeader, size);
+        if (range != null && !range.isSatisfiable()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+
+        long start = range == null ? 0 : range.start();
+        long length = range == null ? size : range.length();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(range == null ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_TYPE, "application/gzip")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .contentLength(length);
+        if (range != null) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + size);
+        }
+        return response.body(out -> exportService.transfer(file, start, length, out));
+    }
+
     @Data
     public static class ReconciliationRequest {
         private String jobName;
@@ -93,5 +164,7 @@ public class ReconciliationController {
         private String sourceB;
         private long timestampToleranceMillis;
         private BigDecimal amountTolerance;
+        // 0 disables split-settlement matching
+        private int maxSplitParts;
     }
 }
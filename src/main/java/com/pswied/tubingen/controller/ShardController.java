@@ -0,0 +1,61 @@
+package com.pswied.tubingen.controller;
+
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.ShardRequest;
+import com.pswied.tubingen.model.ShardResult;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.service.ReconciliationService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker side of sharded mode. Records arrive through the regular {@code /api/ingest};
+ * the coordinator then asks each worker to reconcile its shard and collects the leftovers.
+ */
+@RestController
+@RequestMapping("/api/shard")
+@ConditionalOnProperty(name = "tubingen.cluster.role", havingValue = "worker")
+public class ShardController {
+
+    private final ReconciliationService reconciliationService;
+    private final TransactionStore transactionStore;
+
+    // Local matches per job, fetched by the coordinator on demand
+    private final Map<String, List<ReconciliationMatch>> jobResults = new ConcurrentHashMap<>();
+
+    public ShardController(ReconciliationService reconciliationService, TransactionStore transactionStore) {
+        this.reconciliationService = reconciliationService;
+        this.transactionStore = transactionStore;
+    }
+
+    @PostMapping("/reconcile/{jobId}")
+    public ResponseEntity<ShardResult> reconcileShard(@PathVariable String jobId,
+                                                      @RequestBody ShardRequest request) {
+        ReconciliationService.PartialResult partial = reconciliationService.reconcilePartial(
+                transactionStore.snapshot("A"),
+                transactionStore.snapshot("B"),
+                request.getTimestampToleranceMillis(),
+                request.getAmountTolerance(),
+                request.isJoinOnMatchKeys()
+        );
+
+        jobResults.put(jobId, partial.getMatches());
+
+        return ResponseEntity.ok(new ShardResult(
+                reconciliationService.summarize(partial.getMatches()), partial.getLeftoverA(), partial.getLeftoverB()));
+    }
+
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<List<ReconciliationMatch>> getShardResults(@PathVariable String jobId) {
+        List<ReconciliationMatch> results = jobResults.get(jobId);
+        if (results == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(results);
+    }
+}
@@ -0,0 +1,37 @@
+package com.pswied.tubingen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Describes a bulk export of a job's results: one gzip-compressed file per match type.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportManifest {
+    private String jobId;
+    private Format format;
+    private String status;
+    private List<ExportFile> files;
+    /** Why a FAILED export failed; null otherwise. */
+    private String error;
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ExportFile {
+        private String name;
+        private ReconciliationMatch.MatchType type;
+        private long records;
+        private long bytes;
+    }
+}
@@ -0,0 +1,47 @@
+package com.pswied.tubingen.model;
+
+import java.util.Arrays;
+
+/**
+ * Immutable composite match key made of typed columns (Long or String).
+ * The hash is computed once so the key can be used directly in hash joins
+ * without concatenating the columns into a single string.
+ */
+public final class MatchKey {
+    private final Object[] columns;
+    private final int hash;
+
+    private MatchKey(Object[] columns) {
+        this.columns = columns;
+        this.hash = Arrays.hashCode(columns);
+    }
+
+    public static MatchKey of(Object... columns) {
+        return new MatchKey(columns.clone());
+    }
+
+    public int size() {
+        return columns.length;
+    }
+
+    public Object get(int index) {
+        return columns[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MatchKey other)) return false;
+        return hash == other.hash && Arrays.equals(columns, other.columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchKey" + Arrays.toString(columns);
+    }
+}
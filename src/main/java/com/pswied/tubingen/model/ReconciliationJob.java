@@ -31,5 +31,22 @@ public class ReconciliationJob {
         private int missingInSourceB;
         private int amountMismatch;
         private int duplicates;
+        private int splitMatched;
+
+        public JobSummary(int matched, int missingInSourceA, int missingInSourceB, int amountMismatch, int duplicates) {
+            this(matched, missingInSourceA, missingInSourceB, amountMismatch, duplicates, 0);
+        }
+
+        /**
+         * Adds the counts of another summary to this one.
+         */
+        public void add(JobSummary other) {
+            matched += other.matched;
+            missingInSourceA += other.missingInSourceA;
+            missingInSourceB += other.missingInSourceB;
+            amountMismatch += other.amountMismatch;
+            duplicates += other.duplicates;
+            splitMatched += other.splitMatched;
+        }
     }
 }
@@ -17,6 +17,11 @@ public class ReconciliationMatch {
         MISSING_IN_SOURCE_A,
         MISSING_IN_SOURCE_B,
         AMOUNT_MISMATCH,
-        DUPLICATE
+        DUPLICATE,
+        /**
+         * One part of a many-to-one match: the single (net) record is paired with each
+         * of the counterparts whose amounts add up to it.
+         */
+        SPLIT_MATCHED
     }
 }
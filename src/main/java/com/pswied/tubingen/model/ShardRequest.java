@@ -0,0 +1,20 @@
+package com.pswied.tubingen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * What the coordinator asks each worker to run on its shard: pass 1 and a local pass 2
+ * with the job's tolerances, joining on match keys when the cluster has them configured.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShardRequest {
+    private long timestampToleranceMillis;
+    private BigDecimal amountTolerance;
+    private boolean joinOnMatchKeys;
+}
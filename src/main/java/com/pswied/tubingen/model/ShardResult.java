@@ -0,0 +1,20 @@
+package com.pswied.tubingen.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * What a worker reports back to the coordinator after reconciling its shard:
+ * the summary of its local matches and the records it could not match, in timestamp order.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShardResult {
+    private ReconciliationJob.JobSummary summary;
+    private List<TransactionRecord> leftoverA;
+    private List<TransactionRecord> leftoverB;
+}
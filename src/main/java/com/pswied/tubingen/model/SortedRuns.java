@@ -0,0 +1,150 @@
+package com.pswied.tubingen.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Records kept in ingest order together with the boundaries of the runs that are
+ * already ascending by timestamp. Feeds mostly arrive in time order, so a time-ordered
+ * view is obtained with a k-way merge of the runs instead of a full sort.
+ * Null timestamps sort first.
+ * Duplicates already set aside at ingest travel along, outside the runs.
+ */
+public final class SortedRuns {
+    private final List<TransactionRecord> records;
+    private final int[] runStarts;
+    private final List<TransactionRecord> duplicates;
+
+    private SortedRuns(List<TransactionRecord> records, int[] runStarts, List<TransactionRecord> duplicates) {
+        this.records = records;
+        this.runStarts = runStarts;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Wraps records whose run boundaries are already known, e.g. tracked at ingest.
+     * {@code runStarts} must be ascending, start at 0 when there are records,
+     * and every run must be ascending by timestamp.
+     */
+    public static SortedRuns of(List<TransactionRecord> records, int[] runStarts) {
+        return new SortedRuns(records, runStarts, List.of());
+    }
+
+    /**
+     * As {@link #of(List, int[])}, with the duplicates of these records that were set aside at ingest.
+     */
+    public static SortedRuns of(List<TransactionRecord> records, int[] runStarts, List<TransactionRecord> duplicates) {
+        return new SortedRuns(records, runStarts, duplicates);
+    }
+
+    /**
+     * Wraps records in their current order, detecting the natural ascending runs in one pass.
+     */
+    public static SortedRuns of(List<TransactionRecord> records) {
+        int[] starts = new int[records.isEmpty() ? 0 : 1];
+        int count = starts.length;
+        for (int i = 1; i < records.size(); i++) {
+            if (compareTime(records.get(i - 1), records.get(i)) > 0) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+        return new SortedRuns(records, Arrays.copyOf(starts, count), List.of());
+    }
+
+    /**
+     * Returns the same records and runs carrying the given duplicates instead.
+     */
+    public SortedRuns withDuplicates(List<TransactionRecord> duplicates) {
+        return new SortedRuns(records, runStarts, duplicates);
+    }
+
+    public List<TransactionRecord> records() {
+        return records;
+    }
+
+    /**
+     * Records set aside as duplicates at ingest; they are not part of {@link #records()}.
+     */
+    public List<TransactionRecord> duplicates() {
+        return duplicates;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public int runCount() {
+        return runStarts.length;
+    }
+
+    /**
+     * Keeps the records accepted by the predicate. Relative order, and therefore
+     * every run, is preserved.
+     */
+    public SortedRuns filter(Predicate<TransactionRecord> keep) {
+        List<TransactionRecord> kept = new ArrayList<>(records.size());
+        int[] starts = new int[runStarts.length];
+        int count = 0;
+        for (int run = 0; run < runStarts.length; run++) {
+            int before = kept.size();
+            for (int i = runStarts[run]; i < runEnd(run); i++) {
+                TransactionRecord record = records.get(i);
+                if (keep.test(record)) {
+                    kept.add(record);
+                }
+            }
+            // Adjacent runs whose boundary no longer breaks the time order are coalesced
+            if (kept.size() > before && (before == 0 || compareTime(kept.get(before - 1), kept.get(before)) > 0)) {
+                starts[count++] = before;
+            }
+        }
+        return new SortedRuns(kept, Arrays.copyOf(starts, count), duplicates);
+    }
+
+    /**
+     * Returns all records ordered by timestamp using a k-way merge of the runs,
+     * O(n log k) for k runs. Ties keep their ingest order, as a stable sort would.
+     */
+    public List<TransactionRecord> merge() {
+        if (runStarts.length <= 1) {
+            return records;
+        }
+        List<TransactionRecord> merged = new ArrayList<>(records.size());
+        // Each cursor is {position, end}; ties on timestamp go to the earlier position (= earlier run)
+        PriorityQueue<int[]> heap = new PriorityQueue<>(runStarts.length, (x, y) -> {
+            int cmp = compareTime(records.get(x[0]), records.get(y[0]));
+            return cmp != 0 ? cmp : Integer.compare(x[0], y[0]);
+        });
+        for (int run = 0; run < runStarts.length; run++) {
+            heap.add(new int[]{runStarts[run], runEnd(run)});
+        }
+        while (!heap.isEmpty()) {
+            int[] cursor = heap.poll();
+            merged.add(records.get(cursor[0]));
+            if (++cursor[0] < cursor[1]) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private int runEnd(int run) {
+        return run + 1 < runStarts.length ? runStarts[run + 1] : records.size();
+    }
+
+    public static int compareTime(TransactionRecord a, TransactionRecord b) {
+        Instant ta = a.getTimestamp();
+        Instant tb = b.getTimestamp();
+        if (ta == null || tb == null) {
+            return ta == null ? (tb == null ? 0 : -1) : 1;
+        }
+        return ta.compareTo(tb);
+    }
+}
@@ -1,14 +1,15 @@
 package com.pswied.tubingen.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class TransactionRecord {
     private String source;
@@ -16,4 +17,30 @@ public class TransactionRecord {
     private BigDecimal amount;
     private Instant timestamp;
     private String rawPayload;
+
+    /**
+     * Composite key parsed from rawPayload at ingest time.
+     * Derived data: not part of the wire format nor of the record's identity.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private MatchKey matchKey;
+
+    public TransactionRecord(String source, String transactionId, BigDecimal amount, Instant timestamp, String rawPayload) {
+        this.source = source;
+        this.transactionId = transactionId;
+        this.amount = amount;
+        this.timestamp = timestamp;
+        this.rawPayload = rawPayload;
+    }
+
+    /**
+     * Returns the key used for shard routing: the composite key parsed at ingest when
+     * there is one, the Transaction ID otherwise. Exact matching never mixes the two:
+     * a job joins on composite keys as soon as either side has them.
+     */
+    public Object joinKey() {
+        return matchKey != null ? matchKey : transactionId;
+    }
 }
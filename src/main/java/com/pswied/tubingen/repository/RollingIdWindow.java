@@ -0,0 +1,86 @@
+package com.pswied.tubingen.repository;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Memory-bounded set of the transactionIds recently seen for one source.
+ * Ids are kept in time buckets keyed by transaction timestamp, each an exact set
+ * behind a Bloom filter, so most new ids are rejected by a few bit probes.
+ * Buckets expire whole as newer timestamps move the window forward.
+ */
+public final class RollingIdWindow {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int maxIds;
+    private final int expectedIdsPerBucket;
+    private final double falsePositiveRate;
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+    private int size;
+
+    public RollingIdWindow(IngestDedupProperties properties) {
+        this.bucketCount = Math.max(1, properties.getBuckets());
+        this.bucketMillis = Math.max(1, properties.getWindow().toMillis() / bucketCount);
+        this.maxIds = properties.getMaxIdsPerSource();
+        this.expectedIdsPerBucket = properties.getExpectedIdsPerBucket();
+        this.falsePositiveRate = properties.getFalsePositiveRate();
+    }
+
+    /**
+     * Records the id and returns true if it was already seen within the window.
+     * A record with no timestamp is placed in the newest bucket; one older than
+     * the window is checked but not remembered.
+     */
+    public boolean seen(String id, Instant timestamp) {
+        long hash = BloomFilter.hash(id);
+        for (Bucket bucket : buckets.values()) {
+            if (bucket.bloom.mightContain(hash) && bucket.ids.contains(id)) {
+                return true;
+            }
+        }
+
+        long index = timestamp == null
+                ? (buckets.isEmpty() ? 0 : buckets.lastKey())
+                : Math.floorDiv(timestamp.toEpochMilli(), bucketMillis);
+        if (!buckets.isEmpty() && index <= buckets.lastKey() - bucketCount) {
+            return false;
+        }
+        Bucket bucket = buckets.computeIfAbsent(index, k -> new Bucket(expectedIdsPerBucket, falsePositiveRate));
+        bucket.bloom.put(hash);
+        bucket.ids.add(id);
+        size++;
+        evict();
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    private void evict() {
+        long oldestKept = buckets.lastKey() - bucketCount + 1;
+        while (!buckets.isEmpty() && (buckets.firstKey() < oldestKept || size > maxIds)) {
+            Map.Entry<Long, Bucket> oldest = buckets.pollFirstEntry();
+            size -= oldest.getValue().ids.size();
+        }
+    }
+
+    private static final class Bucket {
+        private final BloomFilter bloom;
+        private final Set<String> ids = new HashSet<>();
+
+        Bucket(int expectedIds, double falsePositiveRate) {
+            this.bloom = new BloomFilter(expectedIds, falsePositiveRate);
+        }
+    }
+}
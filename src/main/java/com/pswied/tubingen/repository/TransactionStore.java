@@ -0,0 +1,106 @@
+package com.pswied.tubingen.repository;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.model.SortedRuns;
+import com.pswied.tubingen.model.TransactionRecord;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory, append-only transaction store per source.
+ * Sorted runs are tracked as batches arrive, so jobs get a time-ordered stream
+ * by merging runs rather than sorting the whole source.
+ * With ingest deduplication enabled, records whose transactionId was recently seen
+ * for the same source are set aside as duplicates and never enter the matching pool.
+ */
+@Repository
+public class TransactionStore {
+
+    /** Batches up to this size are simply sorted on arrival. */
+    static final int SMALL_BATCH_SIZE = 1024;
+    /** Larger batches that would add more runs than this are sorted as well. */
+    static final int MAX_RUNS_PER_BATCH = 16;
+
+    private final IngestDedupProperties dedupProperties;
+    private final Map<String, SourceRecords> sources = new HashMap<>();
+
+    public TransactionStore(IngestDedupProperties dedupProperties) {
+        this.dedupProperties = dedupProperties;
+    }
+
+    /**
+     * Appends a batch and returns how many of its records were set aside as duplicates.
+     */
+    public synchronized int ingest(String source, List<TransactionRecord> batch) {
+        List<TransactionRecord> ordered = new ArrayList<>(batch);
+        if (ordered.size() <= SMALL_BATCH_SIZE || countDescents(ordered) >= MAX_RUNS_PER_BATCH) {
+            ordered.sort(SortedRuns::compareTime);
+        }
+        return sources.computeIfAbsent(source.toUpperCase(), k -> new SourceRecords(newWindow())).append(ordered);
+    }
+
+    /**
+     * Returns a copy of the source's records with their run boundaries and the
+     * duplicates set aside at ingest.
+     */
+    public synchronized SortedRuns snapshot(String source) {
+        SourceRecords records = sources.get(source.toUpperCase());
+        if (records == null) {
+            return SortedRuns.of(new ArrayList<>());
+        }
+        return SortedRuns.of(new ArrayList<>(records.records), Arrays.copyOf(records.runStarts, records.runCount),
+                new ArrayList<>(records.duplicates));
+    }
+
+    private RollingIdWindow newWindow() {
+        return dedupProperties.isEnabled() ? new RollingIdWindow(dedupProperties) : null;
+    }
+
+    private static int countDescents(List<TransactionRecord> batch) {
+        int descents = 0;
+        for (int i = 1; i < batch.size(); i++) {
+            if (SortedRuns.compareTime(batch.get(i - 1), batch.get(i)) > 0) {
+                descents++;
+            }
+        }
+        return descents;
+    }
+
+    private static class SourceRecords {
+        private final List<TransactionRecord> records = new ArrayList<>();
+        private final List<TransactionRecord> duplicates = new ArrayList<>();
+        private final RollingIdWindow window;
+        private int[] runStarts = new int[4];
+        private int runCount;
+
+        SourceRecords(RollingIdWindow window) {
+            this.window = window;
+        }
+
+        int append(List<TransactionRecord> batch) {
+            int duplicatesBefore = duplicates.size();
+            for (TransactionRecord record : batch) {
+                // Checked in store order, so the occurrence kept is the one job-time detection would keep
+                if (window != null && record.getTransactionId() != null
+                        && window.seen(record.getTransactionId(), record.getTimestamp())) {
+                    duplicates.add(record);
+                    continue;
+                }
+                // A new run starts whenever the time order breaks, including across batches
+                if (records.isEmpty() || SortedRuns.compareTime(records.get(records.size() - 1), record) > 0) {
+                    if (runCount == runStarts.length) {
+                        runStarts = Arrays.copyOf(runStarts, runCount * 2);
+                    }
+                    runStarts[runCount++] = records.size();
+                }
+                records.add(record);
+            }
+            return duplicates.size() - duplicatesBefore;
+        }
+    }
+}
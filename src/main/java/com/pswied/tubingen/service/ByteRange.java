@@ -0,0 +1,59 @@
+package com.pswied.tubingen.service;
+
+/**
+ * A single inclusive byte range from an HTTP {@code Range} header.
+ */
+public record ByteRange(long start, long end) {
+
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    /**
+     * Parses a {@code Range} header against a resource of the given size.
+     * Returns null when the whole resource should be sent: no header, another unit,
+     * several ranges or a malformed value (servers may ignore such ranges).
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            if (dash == 0) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || size == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(spec.substring(0, dash));
+            long end = dash == spec.length() - 1 ? size - 1 : Long.parseLong(spec.substring(dash + 1));
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            // Negative or inverted bounds, before or after clamping, are malformed
+            end = Math.min(end, size - 1);
+            if (start < 0 || start > end) {
+                return null;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable() {
+        return start >= 0;
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+}
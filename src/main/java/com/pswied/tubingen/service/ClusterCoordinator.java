@@ -0,0 +1,216 @@
+package com.pswied.tubingen.service;
+
+import com.pswied.tubingen.config.ClusterProperties;
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.model.ReconciliationJob;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.ShardRequest;
+import com.pswied.tubingen.model.ShardResult;
+import com.pswied.tubingen.model.SortedRuns;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.repository.RollingIdWindow;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Coordinator side of sharded mode.
+ * <p>
+ * Ingested records are routed to workers by hash of their join key, so exact matches
+ * always meet on the same worker. Each worker runs pass 1 and a local pass 2; the records
+ * left unmatched on every shard (the only ones that may still pair across shards) are
+ * gathered here for a final fuzzy and split-settlement pass, and the summaries are merged.
+ * <p>
+ * Without match keys the join key is the transactionId, so repeats land on the same worker
+ * and are found there. With match keys configured, repeats of a transactionId may carry
+ * different keys and land on different workers, so they are detected here before routing,
+ * against a {@link RollingIdWindow} per source sized by {@code tubingen.ingest-dedup}, and
+ * reported by the final pass. Repeats further apart than the window are only found at job
+ * time if they share a worker.
+ */
+@Service
+@ConditionalOnProperty(name = "tubingen.cluster.role", havingValue = "coordinator")
+public class ClusterCoordinator {
+
+    private final List<String> workerUrls;
+    private final List<RestClient> workers;
+    // Worker calls block on HTTP, so they get their own threads: one per worker
+    private final ExecutorService executor;
+    private final ReconciliationService reconciliationService;
+    private final MatchKeyEngine matchKeyEngine;
+    // Keyless records can only be fuzzy matched, so they are simply spread evenly
+    private final AtomicInteger keylessCounter = new AtomicInteger();
+    private final IngestDedupProperties dedupProperties;
+    private final Map<String, RollingIdWindow> seenIds = new HashMap<>();
+    private final Map<String, List<TransactionRecord>> duplicates = new HashMap<>();
+
+    public ClusterCoordinator(ClusterProperties properties, RestClient.Builder restClientBuilder,
+                              ReconciliationService reconciliationService, MatchKeyEngine matchKeyEngine,
+                              IngestDedupProperties dedupProperties) {
+        if (properties.getWorkers().isEmpty()) {
+            throw new IllegalStateException("tubingen.cluster.workers must list at least one worker");
+        }
+        this.workerUrls = List.copyOf(properties.getWorkers());
+        this.workers = workerUrls.stream()
+                .map(url -> restClientBuilder.clone().baseUrl(url).build())
+                .toList();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers.size(), runnable -> {
+            Thread thread = new Thread(runnable, "tubingen-cluster-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reconciliationService = reconciliationService;
+        this.matchKeyEngine = matchKeyEngine;
+        this.dedupProperties = dedupProperties;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int shardCount() {
+        return workers.size();
+    }
+
+    public int shardOf(TransactionRecord record) {
+        Object key = record.joinKey();
+        int hash = key != null ? key.hashCode() : keylessCounter.getAndIncrement();
+        return Math.floorMod(hash, workers.size());
+    }
+
+    /**
+     * Routes a batch of one source to the workers.
+     */
+    public void ingest(List<TransactionRecord> transactions) {
+        matchKeyEngine.assignKeys(transactions);
+
+        List<List<TransactionRecord>> shards = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            shards.add(new ArrayList<>());
+        }
+        boolean keyed = matchKeyEngine.isEnabled();
+        synchronized (seenIds) {
+            for (TransactionRecord record : transactions) {
+                String source = record.getSource() == null ? "" : record.getSource().toUpperCase();
+                String id = record.getTransactionId();
+                if (keyed && id != null && seenIds.computeIfAbsent(source, k -> new RollingIdWindow(dedupProperties))
+                        .seen(id, record.getTimestamp())) {
+                    duplicates.computeIfAbsent(source, k -> new ArrayList<>()).add(record);
+                    continue;
+                }
+                shards.get(shardOf(record)).add(record);
+            }
+        }
+
+        onAllWorkers(shard -> shards.get(shard).isEmpty() ? null : workers.get(shard).post()
+                .uri("/api/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(shards.get(shard))
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    /**
+     * Reconciles every shard, then runs the final pass over the leftovers.
+     * Returns the matches found by the final pass; the merged summary is set on the job.
+     */
+    public List<ReconciliationMatch> reconcile(ReconciliationJob job, long toleranceMillis, BigDecimal amountTolerance,
+                                               int maxSplitParts) {
+        List<ShardResult> shardResults = onAllWorkers(shard -> workers.get(shard).post()
+                .uri("/api/shard/reconcile/{jobId}", job.getJobId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ShardRequest(toleranceMillis, amountTolerance, matchKeyEngine.isEnabled()))
+                .retrieve()
+                .body(ShardResult.class));
+
+        // Each worker's leftovers are time ordered, so together they form one sorted run per shard
+        List<TransactionRecord> leftoverA = new ArrayList<>();
+        List<TransactionRecord> leftoverB = new ArrayList<>();
+        ReconciliationJob.JobSummary summary = new ReconciliationJob.JobSummary();
+        for (ShardResult shardResult : shardResults) {
+            leftoverA.addAll(shardResult.getLeftoverA());
+            leftoverB.addAll(shardResult.getLeftoverB());
+            summary.add(shardResult.getSummary());
+        }
+        // Match keys are not part of the wire format
+        matchKeyEngine.assignKeys(leftoverA);
+        matchKeyEngine.assignKeys(leftoverB);
+
+        List<TransactionRecord> duplicatesA;
+        List<TransactionRecord> duplicatesB;
+        synchronized (seenIds) {
+            duplicatesA = new ArrayList<>(duplicates.getOrDefault("A", List.of()));
+            duplicatesB = new ArrayList<>(duplicates.getOrDefault("B", List.of()));
+        }
+
+        List<ReconciliationMatch> finalMatches = reconciliationService.reconcile(
+                SortedRuns.of(leftoverA).withDuplicates(duplicatesA),
+                SortedRuns.of(leftoverB).withDuplicates(duplicatesB),
+                toleranceMillis,
+                amountTolerance,
+                maxSplitParts,
+                matchKeyEngine.isEnabled()
+        );
+        summary.add(reconciliationService.summarize(finalMatches));
+        job.setSummary(summary);
+        return finalMatches;
+    }
+
+    /**
+     * Collects the local matches of every worker for a job.
+     */
+    public List<ReconciliationMatch> shardResults(String jobId) {
+        List<List<ReconciliationMatch>> perShard = onAllWorkers(shard -> workers.get(shard).get()
+                .uri("/api/shard/{jobId}/results", jobId)
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<ReconciliationMatch>>() {}));
+
+        List<ReconciliationMatch> results = new ArrayList<>();
+        perShard.forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * Calls every worker in parallel and returns the non-null responses in shard order.
+     * Fails with the URL of the first worker whose call failed.
+     */
+    private <T> List<T> onAllWorkers(IntFunction<T> call) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < workers.size(); shard++) {
+            int current = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(current), executor));
+        }
+        List<T> responses = new ArrayList<>();
+        for (int shard = 0; shard < futures.size(); shard++) {
+            T response;
+            try {
+                response = futures.get(shard).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new IllegalStateException("Worker " + workerUrls.get(shard) + " failed: " + cause.getMessage(), cause);
+            }
+            if (response != null) {
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+}
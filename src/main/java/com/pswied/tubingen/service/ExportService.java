@@ -0,0 +1,120 @@
+package com.pswied.tubingen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pswied.tubingen.model.ExportManifest;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exports a job's results to local files with {@link ExportWriter}.
+ * Exports run on a dedicated background thread and stream record by record, so neither the
+ * request threads nor the heap ever hold a whole export.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private final ExportWriter writer;
+    private final Path exportDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tubingen-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ExportManifest> manifests = new ConcurrentHashMap<>();
+
+    public ExportService(ObjectMapper objectMapper,
+                         @Value("${tubingen.export.dir:${java.io.tmpdir}/tubingen-exports}") String exportDir) {
+        this.writer = new ExportWriter(objectMapper);
+        this.exportDir = Path.of(exportDir);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts exporting the results in the background and returns the RUNNING manifest.
+     * An export still running for the job is returned as is instead of being restarted.
+     */
+    public ExportManifest startExport(String jobId, List<ReconciliationMatch> matches, ExportManifest.Format format) {
+        ExportManifest running = new ExportManifest(jobId, format, "RUNNING", List.of(), null);
+        // Decided atomically, so concurrent requests for a job start a single export
+        ExportManifest current = manifests.compute(jobId, (id, previous) ->
+                previous != null && "RUNNING".equals(previous.getStatus()) ? previous : running);
+        if (current != running) {
+            return current;
+        }
+        executor.execute(() -> {
+            ExportManifest done;
+            try {
+                done = new ExportManifest(jobId, format, "COMPLETED", write(jobId, matches, format), null);
+            } catch (IOException | RuntimeException e) {
+                log.error("Export of job {} failed", jobId, e);
+                done = new ExportManifest(jobId, format, "FAILED", List.of(), e.toString());
+            }
+            manifests.put(jobId, done);
+        });
+        return running;
+    }
+
+    public ExportManifest getManifest(String jobId) {
+        return manifests.get(jobId);
+    }
+
+    /**
+     * Resolves a file of a completed export, or returns null if it is not part of it.
+     */
+    public Path exportFile(String jobId, String fileName) {
+        ExportManifest manifest = manifests.get(jobId);
+        if (manifest == null || !"COMPLETED".equals(manifest.getStatus())) {
+            return null;
+        }
+        boolean listed = manifest.getFiles().stream().anyMatch(f -> f.getName().equals(fileName));
+        return listed ? exportDir.resolve(jobId).resolve(fileName) : null;
+    }
+
+    /**
+     * Copies {@code count} bytes of the file starting at {@code position} with
+     * {@link FileChannel#transferTo}. The response is not a file channel, so the bytes are
+     * streamed through a small buffer in chunks; the file is never fully loaded.
+     */
+    public void transfer(Path file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = position + count;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    throw new EOFException("Export file truncated: " + file);
+                }
+                position += sent;
+            }
+        }
+    }
+
+    List<ExportManifest.ExportFile> write(String jobId, List<ReconciliationMatch> matches, ExportManifest.Format format) throws IOException {
+        return writer.write(exportDir.resolve(jobId), matches, format);
+    }
+}
@@ -0,0 +1,161 @@
+package com.pswied.tubingen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.pswied.tubingen.model.ExportManifest;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes results to gzip-compressed NDJSON or CSV files, one per match type, on the calling
+ * thread. Each file is written as {@code .part} and renamed once complete.
+ */
+public final class ExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "type,sourceA,transactionIdA,amountA,timestampA,rawPayloadA,"
+            + "sourceB,transactionIdB,amountB,timestampB,rawPayloadB";
+
+    private final ObjectMapper objectMapper;
+
+    public ExportWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the results into the given directory, one file per match type.
+     * On failure every file written so far, partial or published, is deleted.
+     */
+    public List<ExportManifest.ExportFile> write(Path dir, List<ReconciliationMatch> matches, ExportManifest.Format format) throws IOException {
+        Files.createDirectories(dir);
+
+        // Single pass over the results, lazily opening one partition per match type
+        Map<ReconciliationMatch.MatchType, PartitionWriter> partitions = new EnumMap<>(ReconciliationMatch.MatchType.class);
+        try {
+            try {
+                for (ReconciliationMatch match : matches) {
+                    PartitionWriter partition = partitions.get(match.getType());
+                    if (partition == null) {
+                        partition = new PartitionWriter(dir, match.getType(), format);
+                        partitions.put(match.getType(), partition);
+                    }
+                    partition.write(match);
+                }
+            } finally {
+                for (PartitionWriter partition : partitions.values()) {
+                    partition.close();
+                }
+            }
+
+            List<ExportManifest.ExportFile> files = new ArrayList<>();
+            for (PartitionWriter partition : partitions.values()) {
+                files.add(partition.publish());
+            }
+            return files;
+        } catch (IOException | RuntimeException e) {
+            for (PartitionWriter partition : partitions.values()) {
+                partition.delete(e);
+            }
+            throw e;
+        }
+    }
+
+    private class PartitionWriter implements Closeable {
+        private final ReconciliationMatch.MatchType type;
+        private final Path file;
+        private final Path partFile;
+        private final OutputStream out;
+        private final SequenceWriter jsonWriter;
+        private final Writer csvWriter;
+        private long records;
+
+        PartitionWriter(Path dir, ReconciliationMatch.MatchType type, ExportManifest.Format format) throws IOException {
+            this.type = type;
+            this.file = dir.resolve(type.name() + (format == ExportManifest.Format.CSV ? ".csv.gz" : ".ndjson.gz"));
+            this.partFile = dir.resolve(file.getFileName() + ".part");
+            this.out = new GZIPOutputStream(Files.newOutputStream(partFile), BUFFER_SIZE);
+            if (format == ExportManifest.Format.CSV) {
+                this.jsonWriter = null;
+                this.csvWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                csvWriter.write(CSV_HEADER);
+                csvWriter.write('\n');
+            } else {
+                this.jsonWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+                this.csvWriter = null;
+            }
+        }
+
+        void write(ReconciliationMatch match) throws IOException {
+            if (jsonWriter != null) {
+                jsonWriter.write(match);
+            } else {
+                csvWriter.write(match.getType().name());
+                writeCsvRecord(match.getTransactionA());
+                writeCsvRecord(match.getTransactionB());
+                csvWriter.write('\n');
+            }
+            records++;
+        }
+
+        private void writeCsvRecord(TransactionRecord record) throws IOException {
+            if (record == null) {
+                csvWriter.write(",,,,,");
+                return;
+            }
+            writeCsvField(record.getSource());
+            writeCsvField(record.getTransactionId());
+            writeCsvField(record.getAmount() == null ? null : record.getAmount().toPlainString());
+            writeCsvField(record.getTimestamp() == null ? null : record.getTimestamp().toString());
+            writeCsvField(record.getRawPayload());
+        }
+
+        private void writeCsvField(String value) throws IOException {
+            csvWriter.write(',');
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                csvWriter.write(value);
+                return;
+            }
+            csvWriter.write('"');
+            csvWriter.write(value.replace("\"", "\"\""));
+            csvWriter.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (jsonWriter != null) {
+                jsonWriter.close();
+            } else {
+                csvWriter.close();
+            }
+        }
+
+        void delete(Exception failure) {
+            for (Path path : List.of(partFile, file)) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        ExportManifest.ExportFile publish() throws IOException {
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new ExportManifest.ExportFile(file.getFileName().toString(), type, records, Files.size(file));
+        }
+    }
+}
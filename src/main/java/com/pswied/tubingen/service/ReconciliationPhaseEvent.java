@@ -0,0 +1,37 @@
+package com.pswied.tubingen.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event covering one phase of a reconciliation job.
+ * Costs next to nothing unless a recording enables it.
+ */
+@Name(ReconciliationPhaseEvent.NAME)
+@Label("Reconciliation Phase")
+@Category("Tubingen")
+@Description("Wall time of one phase of a reconciliation job")
+@StackTrace(false)
+public class ReconciliationPhaseEvent extends Event {
+
+    public static final String NAME = "com.pswied.tubingen.ReconciliationPhase";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Records")
+    @Description("Records entering the phase")
+    int records;
+
+    static ReconciliationPhaseEvent begin(String phase, int records) {
+        ReconciliationPhaseEvent event = new ReconciliationPhaseEvent();
+        event.phase = phase;
+        event.records = records;
+        event.begin();
+        return event;
+    }
+}
@@ -2,7 +2,10 @@ package com.pswied.tubingen.service;
 
 import com.pswied.tubingen.model.ReconciliationJob;
 import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.SortedRuns;
 import com.pswied.tubingen.model.TransactionRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -13,30 +16,83 @@ import java.util.*;
 public class ReconciliationService {
 
     public List<ReconciliationMatch> reconcile(List<TransactionRecord> listA, List<TransactionRecord> listB, long toleranceMillis, BigDecimal amountTolerance) {
+        return reconcile(SortedRuns.of(listA), SortedRuns.of(listB), toleranceMillis, amountTolerance);
+    }
+
+    public List<ReconciliationMatch> reconcile(SortedRuns runsA, SortedRuns runsB, long toleranceMillis, BigDecimal amountTolerance) {
+        return reconcile(runsA, runsB, toleranceMillis, amountTolerance, 0, false);
+    }
+
+    /**
+     * Runs all passes. With {@code maxSplitParts} of 2 or more, records left over by pass 2 are
+     * additionally matched one-to-many against up to that many counterparts (pass 3).
+     * With {@code joinOnMatchKeys}, pass 1 joins on the composite keys assigned at ingest
+     * instead of on Transaction ID (see {@code MatchKeyEngine#isEnabled()}).
+     */
+    public List<ReconciliationMatch> reconcile(SortedRuns runsA, SortedRuns runsB, long toleranceMillis, BigDecimal amountTolerance,
+                                               int maxSplitParts, boolean joinOnMatchKeys) {
+        PartialResult partial = reconcilePartial(runsA, runsB, toleranceMillis, amountTolerance, joinOnMatchKeys);
+        List<ReconciliationMatch> results = partial.getMatches();
+        List<TransactionRecord> leftoverA = partial.getLeftoverA();
+        List<TransactionRecord> leftoverB = partial.getLeftoverB();
+
+        // --- PASS 3: Split Settlement (one-to-many) ---
+        if (maxSplitParts >= 2 && !leftoverA.isEmpty() && !leftoverB.isEmpty()) {
+            ReconciliationPhaseEvent phase = ReconciliationPhaseEvent.begin("split", leftoverA.size() + leftoverB.size());
+            SplitSettlementMatcher splitMatcher = new SplitSettlementMatcher(
+                    maxSplitParts, SplitSettlementMatcher.DEFAULT_SEARCH_BUDGET, toleranceMillis, amountTolerance);
+            splitMatcher.match(leftoverA, leftoverB, results);
+            phase.commit();
+        }
+
+        // Whatever is still unmatched is missing on the other side
+        for (TransactionRecord recA : leftoverA) {
+            results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_B, recA, null));
+        }
+        for (TransactionRecord recB : leftoverB) {
+            results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_A, null, recB));
+        }
+
+        return results;
+    }
+
+    /**
+     * Runs duplicate detection, pass 1 and pass 2 only. Records left unmatched are returned
+     * in timestamp order instead of being reported missing, so that they can still be matched
+     * against records held elsewhere (see sharded mode).
+     */
+    public PartialResult reconcilePartial(SortedRuns runsA, SortedRuns runsB, long toleranceMillis, BigDecimal amountTolerance,
+                                          boolean joinOnMatchKeys) {
         List<ReconciliationMatch> results = new ArrayList<>();
 
         // --- PRE-PROCESS: Detect Duplicates ---
-        results.addAll(extractDuplicates(listA, "A"));
-        results.addAll(extractDuplicates(listB, "B"));
-        
-        // Lists for the second pass (Fuzzy Match)
-        List<TransactionRecord> unmatchedA = new ArrayList<>();
-        List<TransactionRecord> unmatchedB = new ArrayList<>();
-
-        // --- PASS 1: Exact ID Matching ---
-        // Index listB by Transaction ID for O(1) lookup
-        // Using a LinkedList to handle potential duplicate IDs in source B
-        Map<String, Queue<TransactionRecord>> mapB = new HashMap<>();
-        for (TransactionRecord recB : listB) {
-            if (recB.getTransactionId() != null) {
-                mapB.computeIfAbsent(recB.getTransactionId(), k -> new LinkedList<>()).add(recB);
-            } else {
-                unmatchedB.add(recB);
+        ReconciliationPhaseEvent phase = ReconciliationPhaseEvent.begin("duplicates", runsA.size() + runsB.size());
+        runsA = extractDuplicates(runsA, "A", results);
+        runsB = extractDuplicates(runsB, "B", results);
+        phase.commit();
+
+        // Records consumed by the exact pass; the rest keep their runs for the fuzzy pass
+        Set<TransactionRecord> matchedA = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<TransactionRecord> matchedB = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // --- PASS 1: Exact Key Matching ---
+        phase = ReconciliationPhaseEvent.begin("exact", runsA.size() + runsB.size());
+        // Join on composite match keys when they are configured, otherwise on Transaction ID.
+        // Records that could not be keyed never fall back to their ID here, since an ID can never
+        // equal a composite key; they are left to the fuzzy pass.
+        boolean keyed = joinOnMatchKeys;
+        // Index listB for O(1) lookup
+        // Using a LinkedList to handle potential duplicate keys in source B
+        Map<Object, Queue<TransactionRecord>> mapB = new HashMap<>();
+        for (TransactionRecord recB : runsB.records()) {
+            Object key = keyed ? recB.getMatchKey() : recB.getTransactionId();
+            if (key != null) {
+                mapB.computeIfAbsent(key, k -> new LinkedList<>()).add(recB);
             }
         }
 
-        for (TransactionRecord recA : listA) {
-            String id = recA.getTransactionId();
+        for (TransactionRecord recA : runsA.records()) {
+            Object id = keyed ? recA.getMatchKey() : recA.getTransactionId();
             if (id != null && mapB.containsKey(id) && !mapB.get(id).isEmpty()) {
                 // Exact ID match found
                 TransactionRecord recB = mapB.get(id).poll();
@@ -47,27 +103,29 @@ public class ReconciliationService {
                     } else {
                         results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.AMOUNT_MISMATCH, recA, recB));
                     }
+                    matchedA.add(recA);
+                    matchedB.add(recB);
                 }
                 
                 // Clean up map if empty
                 if (mapB.get(id).isEmpty()) {
                     mapB.remove(id);
                 }
-            } else {
-                // No ID match, save for fuzzy matching
-                unmatchedA.add(recA);
             }
         }
 
-        // Collect remaining items from B for fuzzy matching
-        for (Queue<TransactionRecord> queue : mapB.values()) {
-            unmatchedB.addAll(queue);
-        }
+        phase.commit();
 
         // --- PASS 2: Fuzzy Time Matching (Two-Pointer) ---
-        // Sort by timestamp
-        unmatchedA.sort(Comparator.comparing(TransactionRecord::getTimestamp));
-        unmatchedB.sort(Comparator.comparing(TransactionRecord::getTimestamp));
+        phase = ReconciliationPhaseEvent.begin("fuzzy", runsA.size() + runsB.size() - matchedA.size() - matchedB.size());
+        // Unmatched records stay in their ingest-time sorted runs; a k-way merge
+        // yields them in timestamp order without a full sort
+        List<TransactionRecord> unmatchedA = runsA.filter(r -> !matchedA.contains(r)).merge();
+        List<TransactionRecord> unmatchedB = runsB.filter(r -> !matchedB.contains(r)).merge();
+
+        // Leftovers of pass 2, still in timestamp order
+        List<TransactionRecord> leftoverA = new ArrayList<>();
+        List<TransactionRecord> leftoverB = new ArrayList<>();
 
         int i = 0;
         int j = 0;
@@ -83,41 +141,38 @@ public class ReconciliationService {
                  i++;
                  j++;
             } else if (recA.getTimestamp().isBefore(recB.getTimestamp())) {
-                // recA is earlier and not matched, so it's missing in B
-                results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_B, recA, null));
+                // recA is earlier and not matched
+                leftoverA.add(recA);
                 i++;
             } else {
-                // recB is earlier and not matched, so it's missing in A
-                results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_A, null, recB));
+                // recB is earlier and not matched
+                leftoverB.add(recB);
                 j++;
             }
         }
 
         // Process remaining records
-        while (i < unmatchedA.size()) {
-            results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_B, unmatchedA.get(i), null));
-            i++;
-        }
-
-        while (j < unmatchedB.size()) {
-            results.add(new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_A, null, unmatchedB.get(j)));
-            j++;
-        }
+        leftoverA.addAll(unmatchedA.subList(i, unmatchedA.size()));
+        leftoverB.addAll(unmatchedB.subList(j, unmatchedB.size()));
+        phase.commit();
 
-        return results;
+        return new PartialResult(results, leftoverA, leftoverB);
     }
 
     /**
-     * Identifies and removes duplicates from the provided list.
-     * Returns a list of ReconciliationMatch objects for the duplicates found.
+     * Identifies duplicates in the provided runs, adding a DUPLICATE match for each to the results.
+     * Returns the runs without the duplicates.
      */
-    private List<ReconciliationMatch> extractDuplicates(List<TransactionRecord> list, String sourceName) {
-        List<ReconciliationMatch> duplicates = new ArrayList<>();
+    private SortedRuns extractDuplicates(SortedRuns runs, String sourceName, List<ReconciliationMatch> results) {
         Set<String> seenIds = new HashSet<>();
-        Iterator<TransactionRecord> iterator = list.iterator();
+        Set<TransactionRecord> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // Already set aside at ingest; the scan below still catches those outside the dedup window
+        for (TransactionRecord record : runs.duplicates()) {
+            results.add(duplicateOf(record, sourceName));
+        }
 
-        while (iterator.hasNext()) {
-            TransactionRecord record = iterator.next();
+        for (TransactionRecord record : runs.records()) {
             String id = record.getTransactionId();
 
             // Skip null IDs for duplicate detection (handled in fuzzy match)
@@ -125,24 +180,26 @@ public class ReconciliationService {
                 continue;
             }
 
-            if (seenIds.contains(id)) {
+            if (!seenIds.add(id)) {
                 // Duplicate found!
-                ReconciliationMatch match = new ReconciliationMatch();
-                match.setType(ReconciliationMatch.MatchType.DUPLICATE);
-                if ("A".equals(sourceName)) {
-                    match.setTransactionA(record);
-                } else {
-                    match.setTransactionB(record);
-                }
-                duplicates.add(match);
-                
-                // Remove from the list so it's not processed further
-                iterator.remove();
-            } else {
-                seenIds.add(id);
+                results.add(duplicateOf(record, sourceName));
+                duplicates.add(record);
             }
         }
-        return duplicates;
+
+        // Drop them so they are not processed further
+        return duplicates.isEmpty() ? runs : runs.filter(r -> !duplicates.contains(r));
+    }
+
+    private ReconciliationMatch duplicateOf(TransactionRecord record, String sourceName) {
+        ReconciliationMatch match = new ReconciliationMatch();
+        match.setType(ReconciliationMatch.MatchType.DUPLICATE);
+        if ("A".equals(sourceName)) {
+            match.setTransactionA(record);
+        } else {
+            match.setTransactionB(record);
+        }
+        return match;
     }
 
     private boolean isAmountMatching(BigDecimal amount1, BigDecimal amount2, BigDecimal tolerance) {
@@ -169,8 +226,19 @@ public class ReconciliationService {
                 case DUPLICATE:
                     summary.setDuplicates(summary.getDuplicates() + 1);
                     break;
+                case SPLIT_MATCHED:
+                    summary.setSplitMatched(summary.getSplitMatched() + 1);
+                    break;
             }
         }
         return summary;
     }
+
+    @Data
+    @AllArgsConstructor
+    public static class PartialResult {
+        private List<ReconciliationMatch> matches;
+        private List<TransactionRecord> leftoverA;
+        private List<TransactionRecord> leftoverB;
+    }
 }
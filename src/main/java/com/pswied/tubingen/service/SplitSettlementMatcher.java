@@ -0,0 +1,195 @@
+package com.pswied.tubingen.service;
+
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pass 3: matches a single record against a combination of 2..k counterparts
+ * from the other source whose amounts sum to it, e.g. a net settlement entry
+ * covering several switch transactions.
+ * <p>
+ * The search is bounded: candidates must lie within the time tolerance of the
+ * single record and share its sign, and are collected walking outwards from the
+ * single's position in time until {@link #MAX_CANDIDATES} are found. The subset
+ * search is pruned on sorted amounts. Every record visited and every search step,
+ * pruned or not, is charged against a per-job budget. Once the budget is spent
+ * the remaining records are simply left unmatched.
+ */
+public class SplitSettlementMatcher {
+
+    public static final long DEFAULT_SEARCH_BUDGET = 100_000;
+    /** Candidates closest in time that are considered for a single record. */
+    static final int MAX_CANDIDATES = 20;
+
+    private final int maxParts;
+    private final long toleranceMillis;
+    private final BigDecimal amountTolerance;
+    private long budget;
+
+    /**
+     * {@code maxParts} is capped at {@link #MAX_CANDIDATES}: a combination can never use more parts than that.
+     */
+    public SplitSettlementMatcher(int maxParts, long searchBudget, long toleranceMillis, BigDecimal amountTolerance) {
+        this.maxParts = Math.min(maxParts, MAX_CANDIDATES);
+        this.budget = searchBudget;
+        this.toleranceMillis = toleranceMillis;
+        this.amountTolerance = amountTolerance;
+    }
+
+    /**
+     * Adds a SPLIT_MATCHED result per counterpart and removes every matched record
+     * from the leftover lists. Both lists must be ordered by timestamp.
+     */
+    public void match(List<TransactionRecord> leftoverA, List<TransactionRecord> leftoverB, List<ReconciliationMatch> results) {
+        Set<TransactionRecord> used = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // Settlement banks report the net entry, so try B as the single record first
+        matchDirection(leftoverB, leftoverA, false, used, results);
+        matchDirection(leftoverA, leftoverB, true, used, results);
+
+        if (!used.isEmpty()) {
+            leftoverA.removeIf(used::contains);
+            leftoverB.removeIf(used::contains);
+        }
+    }
+
+    public long getRemainingBudget() {
+        return Math.max(budget, 0);
+    }
+
+    private void matchDirection(List<TransactionRecord> singles, List<TransactionRecord> parts, boolean singleIsA,
+                                Set<TransactionRecord> used, List<ReconciliationMatch> results) {
+        int pos = 0;
+        for (TransactionRecord single : singles) {
+            if (budget <= 0) {
+                return;
+            }
+            if (used.contains(single) || single.getTimestamp() == null
+                    || single.getAmount() == null || single.getAmount().signum() == 0) {
+                continue;
+            }
+            long time = single.getTimestamp().toEpochMilli();
+
+            // Both lists are time ordered, so the single's position among the parts only moves forward
+            while (pos < parts.size() && (parts.get(pos).getTimestamp() == null
+                    || parts.get(pos).getTimestamp().toEpochMilli() < time)) {
+                pos++;
+            }
+
+            List<TransactionRecord> candidates = nearestCandidates(parts, pos, single, used);
+            if (candidates.size() < 2) {
+                continue;
+            }
+            // Work on absolute amounts sorted ascending so the search can cut off early
+            candidates.sort(Comparator.comparing(r -> r.getAmount().abs()));
+
+            int n = candidates.size();
+            BigDecimal[] amounts = new BigDecimal[n];
+            BigDecimal[] prefix = new BigDecimal[n + 1];
+            prefix[0] = BigDecimal.ZERO;
+            for (int i = 0; i < n; i++) {
+                amounts[i] = candidates.get(i).getAmount().abs();
+                prefix[i + 1] = prefix[i].add(amounts[i]);
+            }
+
+            BigDecimal target = single.getAmount().abs();
+            int[] chosen = new int[maxParts];
+            int found = search(amounts, prefix, 0, 0, BigDecimal.ZERO,
+                    target.subtract(amountTolerance), target.add(amountTolerance), chosen);
+            if (found == 0) {
+                continue;
+            }
+
+            used.add(single);
+            for (int k = 0; k < found; k++) {
+                TransactionRecord part = candidates.get(chosen[k]);
+                used.add(part);
+                results.add(singleIsA
+                        ? new ReconciliationMatch(ReconciliationMatch.MatchType.SPLIT_MATCHED, single, part)
+                        : new ReconciliationMatch(ReconciliationMatch.MatchType.SPLIT_MATCHED, part, single));
+            }
+        }
+    }
+
+    /**
+     * Collects up to {@link #MAX_CANDIDATES} unused parts of the single's sign within
+     * the time tolerance, closest first, walking outwards from {@code pos}.
+     * Each record visited costs one unit of budget.
+     */
+    private List<TransactionRecord> nearestCandidates(List<TransactionRecord> parts, int pos, TransactionRecord single,
+                                                      Set<TransactionRecord> used) {
+        long time = single.getTimestamp().toEpochMilli();
+        int signum = single.getAmount().signum();
+        List<TransactionRecord> candidates = new ArrayList<>();
+        int left = pos - 1;
+        int right = pos;
+        while (candidates.size() < MAX_CANDIDATES && budget > 0) {
+            long leftGap = gap(parts, left, time);
+            long rightGap = gap(parts, right, time);
+            long nearest = Math.min(leftGap, rightGap);
+            if (nearest == Long.MAX_VALUE || nearest > toleranceMillis) {
+                break;
+            }
+            TransactionRecord part = leftGap <= rightGap ? parts.get(left--) : parts.get(right++);
+            budget--;
+            if (!used.contains(part) && part.getAmount() != null && part.getAmount().signum() == signum) {
+                candidates.add(part);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Time distance of the part at {@code index}, or {@link Long#MAX_VALUE} past either end of the list.
+     */
+    private static long gap(List<TransactionRecord> parts, int index, long time) {
+        if (index < 0 || index >= parts.size() || parts.get(index).getTimestamp() == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.abs(parts.get(index).getTimestamp().toEpochMilli() - time);
+    }
+
+    /**
+     * Depth-first subset search over ascending amounts.
+     * Returns the number of parts written to {@code chosen}, or 0 when there is no match.
+     */
+    private int search(BigDecimal[] amounts, BigDecimal[] prefix, int start, int depth, BigDecimal partial,
+                       BigDecimal low, BigDecimal high, int[] chosen) {
+        if (depth >= 2 && partial.compareTo(low) >= 0 && partial.compareTo(high) <= 0) {
+            return depth;
+        }
+        if (--budget < 0) {
+            return 0;
+        }
+        int n = amounts.length;
+        if (depth == maxParts || start == n) {
+            return 0;
+        }
+        // Even the largest remaining amounts cannot reach the target
+        int take = Math.min(maxParts - depth, n - start);
+        if (partial.add(prefix[n].subtract(prefix[n - take])).compareTo(low) < 0) {
+            return 0;
+        }
+        for (int i = start; i < n; i++) {
+            BigDecimal next = partial.add(amounts[i]);
+            if (next.compareTo(high) > 0) {
+                // Amounts are ascending, so every later candidate overshoots as well
+                break;
+            }
+            chosen[depth] = i;
+            int found = search(amounts, prefix, i + 1, depth + 1, next, low, high, chosen);
+            if (found > 0) {
+                return found;
+            }
+        }
+        return 0;
+    }
+}
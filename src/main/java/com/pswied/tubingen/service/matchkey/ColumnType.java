@@ -0,0 +1,31 @@
+package com.pswied.tubingen.service.matchkey;
+
+/**
+ * Type of a match key column. Values are converted once at ingest so that
+ * e.g. a zero-padded STAN "000123" and "123" compare equal.
+ */
+public enum ColumnType {
+    TEXT,
+    NUMERIC;
+
+    /**
+     * Converts a raw slice into the column value, or null when it is empty or invalid.
+     */
+    public Object convert(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        if (this == TEXT) {
+            return raw;
+        }
+        long value = 0;
+        for (int i = 0; i < raw.length(); i++) {
+            int digit = raw.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return null;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.pswied.tubingen.service.matchkey;
+
+/**
+ * Reads the n-th field of a delimited payload (e.g. pipe separated switch logs)
+ * by scanning for delimiters, without splitting the whole payload.
+ */
+public class DelimitedFieldExtractor implements MatchKeyExtractor {
+    private final char delimiter;
+    private final int index;
+    private final ColumnType type;
+
+    public DelimitedFieldExtractor(char delimiter, int index, ColumnType type) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid field index: " + index);
+        }
+        this.delimiter = delimiter;
+        this.index = index;
+        this.type = type;
+    }
+
+    @Override
+    public Object extract(Payload payload) {
+        String raw = payload.raw();
+        if (raw == null) {
+            return null;
+        }
+        int start = 0;
+        for (int field = 0; field < index; field++) {
+            int next = raw.indexOf(delimiter, start);
+            if (next < 0) {
+                return null;
+            }
+            start = next + 1;
+        }
+        int end = raw.indexOf(delimiter, start);
+        return type.convert(raw.substring(start, end < 0 ? raw.length() : end).trim());
+    }
+}
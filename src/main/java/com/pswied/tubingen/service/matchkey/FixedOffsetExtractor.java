@@ -0,0 +1,29 @@
+package com.pswied.tubingen.service.matchkey;
+
+/**
+ * Reads a fixed-width field, e.g. STAN or RRN from a flattened ISO8583 message.
+ * Padding spaces are trimmed.
+ */
+public class FixedOffsetExtractor implements MatchKeyExtractor {
+    private final int offset;
+    private final int length;
+    private final ColumnType type;
+
+    public FixedOffsetExtractor(int offset, int length, ColumnType type) {
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid fixed field: offset=" + offset + ", length=" + length);
+        }
+        this.offset = offset;
+        this.length = length;
+        this.type = type;
+    }
+
+    @Override
+    public Object extract(Payload payload) {
+        String raw = payload.raw();
+        if (raw == null || raw.length() < offset + length) {
+            return null;
+        }
+        return type.convert(raw.substring(offset, offset + length).trim());
+    }
+}
@@ -0,0 +1,31 @@
+package com.pswied.tubingen.service.matchkey;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Reads a scalar value at a JSON pointer, e.g. "/CdtTrfTxInf/PmtId/EndToEndId"
+ * for an ISO20022 message rendered as JSON.
+ */
+public class JsonPointerExtractor implements MatchKeyExtractor {
+    private final JsonPointer pointer;
+    private final ColumnType type;
+
+    public JsonPointerExtractor(String pointer, ColumnType type) {
+        this.pointer = JsonPointer.compile(pointer);
+        this.type = type;
+    }
+
+    @Override
+    public Object extract(Payload payload) {
+        JsonNode root = payload.json();
+        if (root == null) {
+            return null;
+        }
+        JsonNode node = root.at(pointer);
+        if (!node.isValueNode() || node.isNull()) {
+            return null;
+        }
+        return type.convert(node.asText());
+    }
+}
@@ -0,0 +1,101 @@
+package com.pswied.tubingen.service.matchkey;
+
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.model.MatchKey;
+import com.pswied.tubingen.model.TransactionRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses each record's rawPayload once at ingest into a composite {@link MatchKey}
+ * using extractors compiled from {@link MatchKeyProperties}.
+ */
+@Service
+public class MatchKeyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchKeyEngine.class);
+
+    private final Map<String, MatchKeyExtractor[]> extractorsBySource = new HashMap<>();
+
+    public MatchKeyEngine(MatchKeyProperties properties) {
+        ColumnType[] expectedTypes = null;
+        for (Map.Entry<String, List<MatchKeyProperties.Field>> entry : properties.getSources().entrySet()) {
+            List<MatchKeyProperties.Field> fields = entry.getValue();
+            ColumnType[] types = fields.stream().map(MatchKeyProperties.Field::getType).toArray(ColumnType[]::new);
+            if (types.length == 0) {
+                throw new IllegalStateException("No match key fields configured for source " + entry.getKey());
+            }
+            if (expectedTypes == null) {
+                expectedTypes = types;
+            } else if (!Arrays.equals(expectedTypes, types)) {
+                throw new IllegalStateException("Match key columns of source " + entry.getKey()
+                        + " do not line up with the other sources");
+            }
+            extractorsBySource.put(entry.getKey().toUpperCase(), fields.stream()
+                    .map(MatchKeyEngine::compile)
+                    .toArray(MatchKeyExtractor[]::new));
+        }
+        // A key on one side only could never meet its counterpart in the exact pass
+        if (isEnabled() && !(extractorsBySource.containsKey("A") && extractorsBySource.containsKey("B"))) {
+            throw new IllegalStateException("Match keys must be configured for both source A and source B");
+        }
+    }
+
+    public boolean isEnabled() {
+        return !extractorsBySource.isEmpty();
+    }
+
+    /**
+     * Assigns a match key to every record of a configured source and returns how many
+     * could not be keyed. Those keep a null key and are left to fuzzy matching.
+     */
+    public int assignKeys(List<TransactionRecord> records) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        int unkeyed = 0;
+        for (TransactionRecord record : records) {
+            record.setMatchKey(extract(record.getSource(), record.getRawPayload()));
+            if (record.getMatchKey() == null) {
+                unkeyed++;
+            }
+        }
+        if (unkeyed > 0) {
+            log.warn("{} of {} records have no match key; they will not be exact matched", unkeyed, records.size());
+        }
+        return unkeyed;
+    }
+
+    public MatchKey extract(String source, String rawPayload) {
+        MatchKeyExtractor[] extractors = source == null ? null : extractorsBySource.get(source.toUpperCase());
+        if (extractors == null || rawPayload == null) {
+            return null;
+        }
+        Payload payload = new Payload(rawPayload);
+        Object[] columns = new Object[extractors.length];
+        for (int i = 0; i < extractors.length; i++) {
+            columns[i] = extractors[i].extract(payload);
+            if (columns[i] == null) {
+                return null;
+            }
+        }
+        return MatchKey.of(columns);
+    }
+
+    static MatchKeyExtractor compile(MatchKeyProperties.Field field) {
+        if (field.getKind() == null) {
+            throw new IllegalStateException("Match key field " + field.getName() + " has no kind");
+        }
+        return switch (field.getKind()) {
+            case FIXED -> new FixedOffsetExtractor(field.getOffset(), field.getLength(), field.getType());
+            case DELIMITED -> new DelimitedFieldExtractor(field.getDelimiter(), field.getIndex(), field.getType());
+            case JSON_POINTER -> new JsonPointerExtractor(field.getPointer(), field.getType());
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.pswied.tubingen.service.matchkey;
+
+/**
+ * Extracts a single typed column from a payload. Implementations are compiled
+ * once from configuration and are stateless, so they can be shared across threads.
+ */
+public interface MatchKeyExtractor {
+
+    /**
+     * Returns the typed column value, or null when the payload does not contain it.
+     */
+    Object extract(Payload payload);
+}
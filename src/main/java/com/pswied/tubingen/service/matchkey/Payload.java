@@ -0,0 +1,43 @@
+package com.pswied.tubingen.service.matchkey;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A raw payload being keyed. The JSON tree is parsed lazily and at most once,
+ * no matter how many JSON pointer extractors read from it.
+ */
+public class Payload {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String raw;
+    private JsonNode json;
+    private boolean jsonParsed;
+
+    public Payload(String raw) {
+        this.raw = raw;
+    }
+
+    public String raw() {
+        return raw;
+    }
+
+    /**
+     * Returns the parsed JSON tree, or null if the payload is not valid JSON.
+     */
+    public JsonNode json() {
+        if (!jsonParsed) {
+            jsonParsed = true;
+            if (raw == null) {
+                return null;
+            }
+            try {
+                json = MAPPER.readTree(raw);
+            } catch (JsonProcessingException e) {
+                json = null;
+            }
+        }
+        return json;
+    }
+}
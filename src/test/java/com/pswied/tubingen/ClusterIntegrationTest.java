@@ -0,0 +1,165 @@
+package com.pswied.tubingen;
+
+import com.pswied.tubingen.config.ClusterProperties;
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.controller.ReconciliationController;
+import com.pswied.tubingen.model.ReconciliationJob;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.service.ClusterCoordinator;
+import com.pswied.tubingen.service.ReconciliationService;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two workers and a coordinator as separate application contexts on random ports.
+ */
+class ClusterIntegrationTest {
+
+    private static final Instant T0 = Instant.parse("2023-10-27T10:00:00Z");
+
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static ConfigurableApplicationContext coordinator;
+    private static RestClient client;
+
+    @BeforeAll
+    static void startCluster() {
+        List<String> workerUrls = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ConfigurableApplicationContext worker = start("--tubingen.cluster.role=worker");
+            workerUrls.add("http://localhost:" + worker.getEnvironment().getProperty("local.server.port"));
+        }
+        coordinator = start("--tubingen.cluster.role=coordinator",
+                "--tubingen.cluster.workers=" + String.join(",", workerUrls));
+        client = RestClient.builder()
+                .baseUrl("http://localhost:" + coordinator.getEnvironment().getProperty("local.server.port"))
+                .build();
+    }
+
+    private static ConfigurableApplicationContext start(String... args) {
+        List<String> allArgs = new ArrayList<>(List.of("--server.port=0", "--spring.devtools.restart.enabled=false",
+                "--tubingen.match-key.sources.A[0].kind=JSON_POINTER", "--tubingen.match-key.sources.A[0].pointer=/key",
+                "--tubingen.match-key.sources.B[0].kind=JSON_POINTER", "--tubingen.match-key.sources.B[0].pointer=/key"));
+        allArgs.addAll(List.of(args));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TubingenApplication.class)
+                .run(allArgs.toArray(String[]::new));
+        contexts.add(context);
+        return context;
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    private static TransactionRecord record(String source, String id, String amount, long offsetSeconds) {
+        return new TransactionRecord(source, id, new BigDecimal(amount), T0.plusSeconds(offsetSeconds), "raw");
+    }
+
+    private static TransactionRecord keyed(String source, String id, long offsetSeconds, String key) {
+        TransactionRecord record = new TransactionRecord(source, id, new BigDecimal("42.00"), T0.plusSeconds(offsetSeconds),
+                "{\"key\":\"" + key + "\"}");
+        coordinator.getBean(MatchKeyEngine.class).assignKeys(List.of(record));
+        return record;
+    }
+
+    @Test
+    void testShardedReconciliation() {
+        ClusterCoordinator router = coordinator.getBean(ClusterCoordinator.class);
+        List<TransactionRecord> listA = new ArrayList<>();
+        List<TransactionRecord> listB = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            listA.add(record("A", "TX" + i, "10.00", i * 60));
+            listB.add(record("B", "TX" + i, "10.00", i * 60 + 1));
+        }
+        // Fuzzy pair with IDs routed to different shards: only the coordinator's final pass can match it
+        TransactionRecord fuzzyA = record("A", "FA", "55.00", 5000);
+        TransactionRecord fuzzyB = record("B", "FB0", "55.00", 5002);
+        for (int n = 1; router.shardOf(fuzzyA) == router.shardOf(fuzzyB); n++) {
+            fuzzyB.setTransactionId("FB" + n);
+        }
+        listA.add(fuzzyA);
+        listB.add(fuzzyB);
+        listB.add(record("B", "ORPHAN", "99.00", 9000));
+        // A retried transactionId whose payload keys route the two copies to different shards
+        TransactionRecord first = keyed("A", "DUP", 7000, "K0");
+        TransactionRecord retry = keyed("A", "DUP", 7100, "K1");
+        for (int n = 2; router.shardOf(first) == router.shardOf(retry); n++) {
+            retry = keyed("A", "DUP", 7100, "K" + n);
+        }
+        listA.add(first);
+        listA.add(retry);
+        listB.add(keyed("B", "CORE-DUP", 8000, "K0"));
+
+        ingest(listA);
+        ingest(listB);
+
+        ReconciliationController.ReconciliationRequest request = new ReconciliationController.ReconciliationRequest();
+        request.setJobName("Sharded Job");
+        request.setTimestampToleranceMillis(5000);
+        request.setAmountTolerance(BigDecimal.ZERO);
+
+        ReconciliationJob job = client.post().uri("/api/cluster/reconcile/start")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .body(ReconciliationJob.class);
+
+        assertNotNull(job);
+        assertEquals("COMPLETED", job.getStatus());
+        // Same counts as a single instance: the retry is a duplicate, not missing on one shard
+        assertEquals(22, job.getSummary().getMatched());
+        assertEquals(1, job.getSummary().getMissingInSourceA());
+        assertEquals(0, job.getSummary().getMissingInSourceB());
+        assertEquals(1, job.getSummary().getDuplicates());
+
+        List<ReconciliationMatch> results = client.get().uri("/api/cluster/recon/{jobId}/results", job.getJobId())
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<ReconciliationMatch>>() {});
+        assertNotNull(results);
+        assertEquals(24, results.size());
+        assertTrue(results.stream().anyMatch(r -> r.getType() == ReconciliationMatch.MatchType.MATCHED
+                && "FA".equals(r.getTransactionA().getTransactionId())));
+    }
+
+    private static void ingest(List<TransactionRecord> records) {
+        client.post().uri("/api/cluster/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(records)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    @Test
+    void testFailedWorkerIsNamed() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        ClusterProperties properties = new ClusterProperties();
+        properties.setWorkers(List.of("http://localhost:" + closedPort));
+        ClusterCoordinator unreachable = new ClusterCoordinator(properties, RestClient.builder(),
+                new ReconciliationService(), new MatchKeyEngine(new MatchKeyProperties()), new IngestDedupProperties());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> unreachable.ingest(List.of(record("A", "TX1", "1.00", 0))));
+        assertTrue(error.getMessage().contains("http://localhost:" + closedPort), error.getMessage());
+    }
+}
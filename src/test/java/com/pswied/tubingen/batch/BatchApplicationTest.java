@@ -0,0 +1,59 @@
+package com.pswied.tubingen.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchApplicationTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReconcilesTwoFiles() throws IOException {
+        // Source A as a JSON array, source B as NDJSON
+        Path fileA = Files.writeString(tempDir.resolve("a.json"), """
+                [
+                  {"transactionId": "TX1", "amount": 100.00, "timestamp": "2023-10-27T10:00:00Z"},
+                  {"transactionId": "TX2", "amount": 200.50, "timestamp": "2023-10-27T10:05:00Z"}
+                ]
+                """);
+        Path fileB = Files.writeString(tempDir.resolve("b.ndjson"), """
+                {"transactionId": "TX1", "amount": 100.00, "timestamp": "2023-10-27T10:00:05Z"}
+                {"transactionId": "TX3", "amount": 300.00, "timestamp": "2023-10-27T10:10:00Z"}
+                """);
+        Path out = tempDir.resolve("out");
+
+        int exitCode = BatchApplication.run("--a=" + fileA, "--b=" + fileB, "--out=" + out, "--format=CSV", "--job-name=Nightly");
+
+        assertEquals(BatchRunner.EXIT_OK, exitCode);
+        JsonNode job = new ObjectMapper().readTree(out.resolve("summary.json").toFile());
+        assertEquals("Nightly", job.get("jobName").asText());
+        assertEquals("COMPLETED", job.get("status").asText());
+        assertEquals(1, job.get("summary").get("matched").asInt());
+        assertEquals(1, job.get("summary").get("missingInSourceA").asInt());
+        assertEquals(1, job.get("summary").get("missingInSourceB").asInt());
+        assertTrue(Files.exists(out.resolve("MATCHED.csv.gz")));
+        assertTrue(Files.exists(out.resolve("MISSING_IN_SOURCE_A.csv.gz")));
+        assertTrue(Files.exists(out.resolve("MISSING_IN_SOURCE_B.csv.gz")));
+    }
+
+    @Test
+    void testMissingArguments() {
+        assertEquals(BatchRunner.EXIT_USAGE, BatchApplication.run("--a=a.json"));
+    }
+
+    @Test
+    void testUnreadableInput() {
+        Path missing = tempDir.resolve("missing.json");
+
+        assertEquals(BatchRunner.EXIT_FAILED, BatchApplication.run("--a=" + missing, "--b=" + missing, "--out=" + tempDir));
+    }
+}
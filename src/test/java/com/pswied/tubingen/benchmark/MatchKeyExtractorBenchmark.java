@@ -0,0 +1,76 @@
+package com.pswied.tubingen.benchmark;
+
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.model.MatchKey;
+import com.pswied.tubingen.service.matchkey.ColumnType;
+import com.pswied.tubingen.service.matchkey.DelimitedFieldExtractor;
+import com.pswied.tubingen.service.matchkey.FixedOffsetExtractor;
+import com.pswied.tubingen.service.matchkey.JsonPointerExtractor;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
+import com.pswied.tubingen.service.matchkey.Payload;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-extractor parse cost of the match key engine.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=MatchKeyExtractorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchKeyExtractorBenchmark {
+
+    private static final String FIXED_PAYLOAD = "000123RRN000000001TERM0001";
+    private static final String DELIMITED_PAYLOAD = "0200|000123|RRN000000001|TERM0001|150.00";
+    private static final String JSON_PAYLOAD =
+            "{\"MsgId\":\"M1\",\"CdtTrfTxInf\":{\"PmtId\":{\"EndToEndId\":\"E2E-000123\"},\"Amt\":\"150.00\"}}";
+
+    private final FixedOffsetExtractor fixed = new FixedOffsetExtractor(0, 6, ColumnType.NUMERIC);
+    private final DelimitedFieldExtractor delimited = new DelimitedFieldExtractor('|', 2, ColumnType.TEXT);
+    private final JsonPointerExtractor jsonPointer = new JsonPointerExtractor("/CdtTrfTxInf/PmtId/EndToEndId", ColumnType.TEXT);
+    private MatchKeyEngine iso8583Engine;
+
+    @Setup
+    public void setUp() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        List<MatchKeyProperties.Field> fields = List.of(
+                field(0, 6, ColumnType.NUMERIC), field(6, 12, ColumnType.TEXT), field(18, 8, ColumnType.TEXT));
+        properties.getSources().put("A", fields);
+        properties.getSources().put("B", fields);
+        iso8583Engine = new MatchKeyEngine(properties);
+    }
+
+    private static MatchKeyProperties.Field field(int offset, int length, ColumnType type) {
+        MatchKeyProperties.Field field = new MatchKeyProperties.Field();
+        field.setKind(MatchKeyProperties.Kind.FIXED);
+        field.setOffset(offset);
+        field.setLength(length);
+        field.setType(type);
+        return field;
+    }
+
+    @Benchmark
+    public Object fixedOffset() {
+        return fixed.extract(new Payload(FIXED_PAYLOAD));
+    }
+
+    @Benchmark
+    public Object delimitedField() {
+        return delimited.extract(new Payload(DELIMITED_PAYLOAD));
+    }
+
+    @Benchmark
+    public Object jsonPointer() {
+        return jsonPointer.extract(new Payload(JSON_PAYLOAD));
+    }
+
+    @Benchmark
+    public MatchKey compositeIso8583Key() {
+        return iso8583Engine.extract("A", FIXED_PAYLOAD);
+    }
+}
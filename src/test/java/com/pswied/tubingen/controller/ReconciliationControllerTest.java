@@ -2,26 +2,37 @@ package com.pswied.tubingen.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.service.ExportService;
 import com.pswied.tubingen.service.ReconciliationService;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 @WebMvcTest(ReconciliationController.class)
-@Import(ReconciliationService.class)
+@Import({ReconciliationService.class, MatchKeyEngine.class, MatchKeyProperties.class, IngestDedupProperties.class, TransactionStore.class, ExportService.class})
 class ReconciliationControllerTest {
 
     @Autowired
@@ -113,4 +124,89 @@ class ReconciliationControllerTest {
         mockMvc.perform(get("/api/recon/invalid-id/results"))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void testExportAndRangedDownload() throws Exception {
+        List<TransactionRecord> listA = List.of(
+                new TransactionRecord("A", "EXP1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw")
+        );
+        mockMvc.perform(post("/api/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(listA)))
+                .andExpect(status().isOk());
+
+        ReconciliationController.ReconciliationRequest request = new ReconciliationController.ReconciliationRequest();
+        request.setJobName("Export Job");
+        request.setAmountTolerance(BigDecimal.ZERO);
+        String response = mockMvc.perform(post("/api/reconcile/start")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andReturn().getResponse().getContentAsString();
+        String jobId = objectMapper.readTree(response).get("jobId").asText();
+
+        mockMvc.perform(post("/api/recon/" + jobId + "/export").param("format", "CSV"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.format").value("CSV"));
+
+        String status = "RUNNING";
+        for (int i = 0; i < 100 && "RUNNING".equals(status); i++) {
+            Thread.sleep(20);
+            status = objectMapper.readTree(mockMvc.perform(get("/api/recon/" + jobId + "/export"))
+                    .andReturn().getResponse().getContentAsString()).get("status").asText();
+        }
+        assertEquals("COMPLETED", status);
+
+        MvcResult ranged = mockMvc.perform(get("/api/recon/" + jobId + "/export/MISSING_IN_SOURCE_B.csv.gz")
+                .header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(ranged))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, org.hamcrest.Matchers.startsWith("bytes 0-9/")))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10));
+        assertEquals(10, ranged.getResponse().getContentAsByteArray().length);
+
+        mockMvc.perform(get("/api/recon/" + jobId + "/export/MISSING_IN_SOURCE_B.csv.gz")
+                .header(HttpHeaders.RANGE, "bytes=100000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+
+        mockMvc.perform(get("/api/recon/" + jobId + "/export/unknown.csv.gz"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testExportNotFound() throws Exception {
+        mockMvc.perform(post("/api/recon/invalid-id/export"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/recon/invalid-id/export"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testOversizedMaxSplitPartsDoesNotFailTheJob() throws Exception {
+        mockMvc.perform(post("/api/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        new TransactionRecord("A", "SPLIT-1", new BigDecimal("10.00"), Instant.parse("2030-01-01T10:00:00Z"), "raw"),
+                        new TransactionRecord("A", "SPLIT-2", new BigDecimal("5.00"), Instant.parse("2030-01-01T10:00:01Z"), "raw")))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        new TransactionRecord("B", "SPLIT-NET", new BigDecimal("15.00"), Instant.parse("2030-01-01T10:00:02Z"), "raw")))))
+                .andExpect(status().isOk());
+
+        ReconciliationController.ReconciliationRequest request = new ReconciliationController.ReconciliationRequest();
+        request.setJobName("Split Job");
+        request.setTimestampToleranceMillis(5000);
+        request.setAmountTolerance(BigDecimal.ZERO);
+        request.setMaxSplitParts(Integer.MAX_VALUE);
+
+        mockMvc.perform(post("/api/reconcile/start")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.summary.splitMatched").value(2));
+    }
 }
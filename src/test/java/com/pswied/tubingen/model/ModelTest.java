@@ -101,6 +101,13 @@ class ModelTest {
         assertEquals(summary, summary2);
         assertEquals(summary.hashCode(), summary2.hashCode());
         assertNotNull(summary.toString());
+
+        summary.setSplitMatched(6);
+        assertEquals(6, summary.getSplitMatched());
+        assertEquals(summary, new ReconciliationJob.JobSummary(1, 2, 3, 4, 5, 6));
+
+        summary.add(new ReconciliationJob.JobSummary(1, 1, 1, 1, 1, 1));
+        assertEquals(new ReconciliationJob.JobSummary(2, 3, 4, 5, 6, 7), summary);
     }
 
     @Test
@@ -0,0 +1,71 @@
+package com.pswied.tubingen.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedRunsTest {
+
+    private static TransactionRecord at(String id, long epochSecond) {
+        return new TransactionRecord("A", id, BigDecimal.ONE, Instant.ofEpochSecond(epochSecond), "raw");
+    }
+
+    @Test
+    void testDetectsNaturalRuns() {
+        List<TransactionRecord> records = List.of(at("1", 1), at("2", 2), at("3", 0), at("4", 5), at("5", 3));
+
+        SortedRuns runs = SortedRuns.of(records);
+
+        assertEquals(3, runs.runCount());
+        assertEquals(5, runs.size());
+        assertEquals(List.of("3", "1", "2", "5", "4"), runs.merge().stream().map(TransactionRecord::getTransactionId).toList());
+    }
+
+    @Test
+    void testSingleRunIsReturnedAsIs() {
+        List<TransactionRecord> records = List.of(at("1", 1), at("2", 1), at("3", 2));
+
+        SortedRuns runs = SortedRuns.of(records);
+
+        assertEquals(1, runs.runCount());
+        assertSame(records, runs.merge());
+        assertEquals(0, SortedRuns.of(List.of()).runCount());
+    }
+
+    @Test
+    void testMergeMatchesStableSort() {
+        Random random = new Random(42);
+        List<TransactionRecord> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            records.add(at("TX" + i, random.nextInt(300)));
+        }
+        List<TransactionRecord> expected = new ArrayList<>(records);
+        expected.sort(SortedRuns::compareTime);
+
+        assertEquals(expected, SortedRuns.of(records).merge());
+    }
+
+    @Test
+    void testFilterKeepsRuns() {
+        List<TransactionRecord> records = List.of(at("1", 1), at("2", 2), at("3", 0), at("4", 5));
+
+        SortedRuns filtered = SortedRuns.of(records).filter(r -> !r.getTransactionId().equals("3"));
+
+        assertEquals(1, filtered.runCount());
+        assertEquals(List.of("1", "2", "4"), filtered.merge().stream().map(TransactionRecord::getTransactionId).toList());
+    }
+
+    @Test
+    void testNullTimestampsSortFirst() {
+        TransactionRecord noTime = new TransactionRecord("A", "0", BigDecimal.ONE, null, "raw");
+        List<TransactionRecord> records = List.of(at("1", 1), noTime);
+
+        assertSame(noTime, SortedRuns.of(records).merge().get(0));
+    }
+}
@@ -0,0 +1,261 @@
+package com.pswied.tubingen.perf;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.model.SortedRuns;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.repository.TransactionStore;
+import com.pswied.tubingen.service.ReconciliationPhaseEvent;
+import com.pswied.tubingen.service.ReconciliationService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation and latency regression tests for {@link ReconciliationService}.
+ * <p>
+ * Each fixed synthetic dataset is reconciled under Java Flight Recorder. Allocated bytes per
+ * record, GC pause time and per-phase wall time are read back from the recorded events and
+ * compared against the checked-in baseline. Allocation is deterministic and checked in every
+ * build; GC pause and phase wall times depend on the machine and its load and are only checked
+ * with {@code ./mvnw -Pperf test}.
+ * <ul>
+ *   <li>{@code -Dperf.margin=0.25}: allowed relative regression of allocation (default 25%)</li>
+ *   <li>{@code -Dperf.timeMargin=1.0}: allowed relative regression of GC pause and phase times
+ *       (default 100%, wall time is far noisier than allocation on shared machines)</li>
+ *   <li>{@code -Dperf.slackMillis=5}: absolute slack added to time based metrics</li>
+ *   <li>{@code -Dperf.checkTimes=true}: also check GC pause and phase times (set by the {@code perf} profile)</li>
+ *   <li>{@code -Dperf.updateBaseline=true}: rewrite the baseline from this run instead of checking</li>
+ * </ul>
+ */
+class ReconciliationPerformanceTest {
+
+    private static final Path BASELINE = Path.of("src/test/resources/perf/reconciliation-baseline.properties");
+    private static final Instant T0 = Instant.parse("2023-10-27T00:00:00Z");
+    private static final int RECORDS_PER_SOURCE = 50_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 10;
+    private static final long TOLERANCE_MILLIS = 5_000;
+
+    private final ReconciliationService service = new ReconciliationService();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"exact", "fuzzy", "split"})
+    void testReconcileStaysWithinBaseline(String dataset) throws IOException {
+        List<List<TransactionRecord>> sources = generate(dataset);
+        SortedRuns runsA = ingest("A", sources.get(0));
+        SortedRuns runsB = ingest("B", sources.get(1));
+        int maxSplitParts = "split".equals(dataset) ? 3 : 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            service.summarize(service.reconcile(runsA, runsB, TOLERANCE_MILLIS, BigDecimal.ZERO, maxSplitParts, false));
+        }
+
+        Path jfr = Files.createTempFile("reconciliation-" + dataset, ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ReconciliationPhaseEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable("jdk.ThreadAllocationStatistics").with("period", "everyChunk");
+            recording.enable("jdk.GarbageCollection");
+            recording.start();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                service.summarize(service.reconcile(runsA, runsB, TOLERANCE_MILLIS, BigDecimal.ZERO, maxSplitParts, false));
+            }
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        Map<String, Double> metrics;
+        try {
+            metrics = extractMetrics(jfr, runsA.size() + runsB.size());
+        } finally {
+            Files.deleteIfExists(jfr);
+        }
+
+        if (Boolean.getBoolean("perf.updateBaseline")) {
+            updateBaseline(dataset, metrics);
+            return;
+        }
+        checkAgainstBaseline(dataset, metrics);
+    }
+
+    /**
+     * Fixed, seeded datasets. Records arrive in mostly time-ordered batches like real feeds.
+     */
+    private static List<List<TransactionRecord>> generate(String dataset) {
+        Random random = new Random(20231027L);
+        List<TransactionRecord> listA = new ArrayList<>(RECORDS_PER_SOURCE);
+        List<TransactionRecord> listB = new ArrayList<>(RECORDS_PER_SOURCE);
+        for (int i = 0; i < RECORDS_PER_SOURCE; i++) {
+            Instant time = T0.plusMillis(i * 1_000L + random.nextInt(500));
+            BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+            listA.add(new TransactionRecord("A", "TX" + i, amount, time, "raw"));
+
+            switch (dataset) {
+                case "exact" -> {
+                    // Same ids; a few amount mismatches, missing records and duplicates
+                    int roll = random.nextInt(100);
+                    BigDecimal amountB = roll < 2 ? amount.add(BigDecimal.ONE) : amount;
+                    if (roll != 99) {
+                        listB.add(new TransactionRecord("B", "TX" + i, amountB, time.plusMillis(random.nextInt(2_000)), "raw"));
+                    }
+                    if (roll == 98) {
+                        listB.add(new TransactionRecord("B", "TX" + i, amountB, time.plusMillis(2_000), "raw"));
+                    }
+                }
+                case "fuzzy" -> {
+                    // A third of the counterparts carry another id and can only be paired on time and amount
+                    String id = random.nextInt(3) == 0 ? "CORE" + i : "TX" + i;
+                    listB.add(new TransactionRecord("B", id, amount, time.plusMillis(random.nextInt(2_000)), "raw"));
+                }
+                case "split" -> {
+                    // Every tenth group of three A records is settled as one net B entry
+                    if (i % 30 < 3) {
+                        if (i % 30 == 2) {
+                            BigDecimal net = listA.get(i).getAmount().add(listA.get(i - 1).getAmount()).add(listA.get(i - 2).getAmount());
+                            listB.add(new TransactionRecord("B", "NET" + i, net, time, "raw"));
+                        }
+                    } else {
+                        listB.add(new TransactionRecord("B", "TX" + i, amount, time.plusMillis(random.nextInt(2_000)), "raw"));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown dataset " + dataset);
+            }
+        }
+        return List.of(listA, listB);
+    }
+
+    private static SortedRuns ingest(String source, List<TransactionRecord> records) {
+        TransactionStore store = new TransactionStore(new IngestDedupProperties());
+        for (int i = 0; i < records.size(); i += BATCH_SIZE) {
+            store.ingest(source, records.subList(i, Math.min(i + BATCH_SIZE, records.size())));
+        }
+        return store.snapshot(source);
+    }
+
+    private static Map<String, Double> extractMetrics(Path jfr, int records) throws IOException {
+        long threadId = Thread.currentThread().getId();
+        long minAllocated = Long.MAX_VALUE;
+        long maxAllocated = Long.MIN_VALUE;
+        List<RecordedEvent> gcs = new ArrayList<>();
+        List<RecordedEvent> phases = new ArrayList<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(jfr)) {
+            switch (event.getEventType().getName()) {
+                case "jdk.ThreadAllocationStatistics" -> {
+                    RecordedThread thread = event.getThread("thread");
+                    if (thread != null && thread.getJavaThreadId() == threadId) {
+                        minAllocated = Math.min(minAllocated, event.getLong("allocated"));
+                        maxAllocated = Math.max(maxAllocated, event.getLong("allocated"));
+                    }
+                }
+                case "jdk.GarbageCollection" -> gcs.add(event);
+                case ReconciliationPhaseEvent.NAME -> phases.add(event);
+                default -> { }
+            }
+        }
+        assertTrue(maxAllocated >= minAllocated, "No allocation statistics recorded for the test thread");
+
+        double gcPauseNanos = 0;
+        for (RecordedEvent gc : gcs) {
+            gcPauseNanos += gc.getDuration("sumOfPauses").toNanos();
+        }
+
+        // Phase times exclude GC pauses, which are reported on their own and would otherwise
+        // turn a phase bimodal depending on whether a collection happened to land in it
+        Map<String, List<Double>> phaseMillis = new TreeMap<>();
+        for (RecordedEvent phase : phases) {
+            long nanos = phase.getDuration().toNanos();
+            for (RecordedEvent gc : gcs) {
+                long overlap = Duration.between(max(phase.getStartTime(), gc.getStartTime()), min(phase.getEndTime(), gc.getEndTime())).toNanos();
+                if (overlap > 0) {
+                    nanos -= Math.min(overlap, gc.getDuration("sumOfPauses").toNanos());
+                }
+            }
+            phaseMillis.computeIfAbsent("phase." + phase.getString("phase") + ".millis", k -> new ArrayList<>()).add(nanos / 1e6);
+        }
+
+        // The median of the measured iterations is robust against both hiccups and lucky runs
+        Map<String, Double> metrics = new TreeMap<>();
+        phaseMillis.forEach((key, samples) -> {
+            Collections.sort(samples);
+            metrics.put(key, samples.get(samples.size() / 2));
+        });
+        metrics.put("allocBytesPerRecord", (double) (maxAllocated - minAllocated) / MEASURED_ITERATIONS / records);
+        metrics.put("gcPauseMillis", gcPauseNanos / 1e6 / MEASURED_ITERATIONS);
+        return metrics;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static void checkAgainstBaseline(String dataset, Map<String, Double> metrics) throws IOException {
+        Properties baseline = loadBaseline();
+        double allocationMargin = Double.parseDouble(System.getProperty("perf.margin", "0.25"));
+        double timeMargin = Double.parseDouble(System.getProperty("perf.timeMargin", "1.0"));
+        double slackMillis = Double.parseDouble(System.getProperty("perf.slackMillis", "5"));
+        boolean checkTimes = Boolean.getBoolean("perf.checkTimes");
+
+        List<String> regressions = new ArrayList<>();
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+            String key = dataset + "." + metric.getKey();
+            boolean timeBased = key.toLowerCase(Locale.ROOT).endsWith("millis");
+            if (timeBased && !checkTimes) {
+                continue;
+            }
+            String expected = baseline.getProperty(key);
+            assertNotNull(expected, "No baseline for " + key + "; run with -Dperf.updateBaseline=true");
+            double margin = timeBased ? timeMargin : allocationMargin;
+            double limit = Double.parseDouble(expected) * (1 + margin) + (timeBased ? slackMillis : 0);
+            report.append(String.format(Locale.ROOT, "%n  %-40s %12.2f (baseline %s, limit %.2f)", key, metric.getValue(), expected, limit));
+            if (metric.getValue() > limit) {
+                regressions.add(String.format("%s = %.2f exceeds baseline %s by more than %.0f%%", key, metric.getValue(), expected, margin * 100));
+            }
+        }
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions) + report);
+    }
+
+    private static Properties loadBaseline() throws IOException {
+        Properties baseline = new Properties();
+        if (Files.exists(BASELINE)) {
+            try (Reader reader = Files.newBufferedReader(BASELINE, StandardCharsets.UTF_8)) {
+                baseline.load(reader);
+            }
+        }
+        return baseline;
+    }
+
+    private static synchronized void updateBaseline(String dataset, Map<String, Double> metrics) throws IOException {
+        Properties baseline = loadBaseline();
+        baseline.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(dataset + "."))
+                .forEach(baseline::remove);
+        metrics.forEach((key, value) -> baseline.setProperty(dataset + "." + key, String.format(Locale.ROOT, "%.2f", value)));
+
+        // Written by hand to keep the file sorted and free of a timestamp header
+        StringBuilder content = new StringBuilder("# Generated by ReconciliationPerformanceTest with -Dperf.updateBaseline=true\n");
+        new TreeSet<>(baseline.stringPropertyNames()).forEach(key -> content.append(key).append('=').append(baseline.getProperty(key)).append('\n'));
+        Files.createDirectories(BASELINE.getParent());
+        Files.writeString(BASELINE, content, StandardCharsets.UTF_8);
+    }
+}
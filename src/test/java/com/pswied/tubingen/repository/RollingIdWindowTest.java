@@ -0,0 +1,79 @@
+package com.pswied.tubingen.repository;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingIdWindowTest {
+
+    private static RollingIdWindow window(int maxIds) {
+        IngestDedupProperties properties = new IngestDedupProperties();
+        properties.setWindow(Duration.ofMinutes(4));
+        properties.setBuckets(4);
+        properties.setMaxIdsPerSource(maxIds);
+        properties.setExpectedIdsPerBucket(100);
+        return new RollingIdWindow(properties);
+    }
+
+    private static Instant minute(int minute) {
+        return Instant.ofEpochSecond(minute * 60L);
+    }
+
+    @Test
+    void testRepeatWithinWindowIsSeen() {
+        RollingIdWindow window = window(1000);
+
+        assertFalse(window.seen("TX1", minute(0)));
+        assertFalse(window.seen("TX2", minute(1)));
+        assertTrue(window.seen("TX1", minute(3)));
+        assertTrue(window.seen("TX2", null));
+        assertEquals(2, window.size());
+    }
+
+    @Test
+    void testOldBucketsExpire() {
+        RollingIdWindow window = window(1000);
+
+        window.seen("TX1", minute(0));
+        window.seen("TX2", minute(4));
+
+        assertEquals(1, window.bucketCount());
+        assertFalse(window.seen("TX1", minute(4)));
+        // Older than the window: checked, but not remembered
+        assertFalse(window.seen("TX3", minute(0)));
+        assertFalse(window.seen("TX3", minute(0)));
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        RollingIdWindow window = window(150);
+        for (int i = 0; i < 100; i++) {
+            window.seen("A" + i, minute(0));
+            window.seen("B" + i, minute(1));
+        }
+
+        assertTrue(window.size() <= 150);
+        assertFalse(window.seen("A0", minute(1)));
+        assertTrue(window.seen("B0", minute(1)));
+    }
+
+    @Test
+    void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter bloom = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put(BloomFilter.hash("TX" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloom.mightContain(BloomFilter.hash("TX" + i)));
+            if (bloom.mightContain(BloomFilter.hash("RX" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,151 @@
+package com.pswied.tubingen.repository;
+
+import com.pswied.tubingen.config.IngestDedupProperties;
+import com.pswied.tubingen.model.SortedRuns;
+import com.pswied.tubingen.model.ReconciliationJob;
+import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.service.ReconciliationService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStoreTest {
+
+    private static TransactionRecord at(long epochSecond) {
+        return new TransactionRecord("A", "TX" + epochSecond, BigDecimal.ONE, Instant.ofEpochSecond(epochSecond), "raw");
+    }
+
+    private static IngestDedupProperties dedup(Duration window) {
+        IngestDedupProperties properties = new IngestDedupProperties();
+        properties.setEnabled(true);
+        properties.setWindow(window);
+        properties.setBuckets(4);
+        properties.setExpectedIdsPerBucket(1000);
+        return properties;
+    }
+
+    @Test
+    void testSmallBatchesAreSortedAndChained() {
+        TransactionStore store = new TransactionStore(new IngestDedupProperties());
+
+        store.ingest("A", List.of(at(3), at(1), at(2)));
+        store.ingest("a", List.of(at(5), at(4)));
+
+        SortedRuns runs = store.snapshot("A");
+        assertEquals(1, runs.runCount());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), runs.records().stream().map(r -> r.getTimestamp().getEpochSecond()).toList());
+    }
+
+    @Test
+    void testOverlappingBatchesStartNewRun() {
+        TransactionStore store = new TransactionStore(new IngestDedupProperties());
+
+        store.ingest("B", List.of(at(10), at(20)));
+        store.ingest("B", List.of(at(15), at(25)));
+
+        SortedRuns runs = store.snapshot("B");
+        assertEquals(2, runs.runCount());
+        assertEquals(List.of(10L, 15L, 20L, 25L), runs.merge().stream().map(r -> r.getTimestamp().getEpochSecond()).toList());
+    }
+
+    @Test
+    void testLargeMostlySortedBatchKeepsItsRuns() {
+        TransactionStore store = new TransactionStore(new IngestDedupProperties());
+        List<TransactionRecord> batch = new ArrayList<>();
+        for (int i = 0; i < TransactionStore.SMALL_BATCH_SIZE * 2; i++) {
+            batch.add(at(i));
+        }
+        // One late arrival
+        batch.add(at(5));
+
+        store.ingest("A", batch);
+
+        SortedRuns runs = store.snapshot("A");
+        assertEquals(2, runs.runCount());
+        assertSame(batch.get(batch.size() - 1), runs.records().get(runs.size() - 1));
+    }
+
+    @Test
+    void testLargeUnorderedBatchIsSorted() {
+        TransactionStore store = new TransactionStore(new IngestDedupProperties());
+        List<TransactionRecord> batch = new ArrayList<>();
+        for (int i = TransactionStore.SMALL_BATCH_SIZE * 2; i > 0; i--) {
+            batch.add(at(i));
+        }
+
+        store.ingest("A", batch);
+
+        assertEquals(1, store.snapshot("A").runCount());
+    }
+
+    @Test
+    void testSnapshotOfUnknownSourceIsEmpty() {
+        assertEquals(0, new TransactionStore(new IngestDedupProperties()).snapshot("A").size());
+    }
+
+    @Test
+    void testIngestDedupSetsAsideRetries() {
+        TransactionStore store = new TransactionStore(dedup(Duration.ofHours(1)));
+        TransactionRecord retry = new TransactionRecord("A", "R1", BigDecimal.ONE, Instant.ofEpochSecond(2), "raw");
+
+        assertEquals(0, store.ingest("A", List.of(at(1), new TransactionRecord("A", "R1", BigDecimal.ONE, Instant.ofEpochSecond(1), "raw"))));
+        assertEquals(1, store.ingest("A", List.of(retry, at(3))));
+
+        SortedRuns runs = store.snapshot("A");
+        assertEquals(3, runs.size());
+        assertEquals(1, runs.runCount());
+        assertEquals(List.of(retry), runs.duplicates());
+    }
+
+    @Test
+    void testIngestDedupKeepsJobSummary() {
+        // Retries both inside and well outside a 10 minute window
+        Random random = new Random(42);
+        List<List<TransactionRecord>> batchesA = new ArrayList<>();
+        List<TransactionRecord> all = new ArrayList<>();
+        for (int batch = 0; batch < 20; batch++) {
+            List<TransactionRecord> records = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                long second = batch * 300L + random.nextInt(600);
+                String id = random.nextInt(10) == 0 && !all.isEmpty()
+                        ? all.get(random.nextInt(all.size())).getTransactionId()
+                        : "TX" + (batch * 50 + i);
+                TransactionRecord record = new TransactionRecord("A", id, BigDecimal.ONE, Instant.ofEpochSecond(second), "raw");
+                records.add(record);
+                all.add(record);
+            }
+            batchesA.add(records);
+        }
+        List<TransactionRecord> listB = all.stream()
+                .filter(r -> random.nextBoolean())
+                .map(r -> new TransactionRecord("B", r.getTransactionId(), r.getAmount(), r.getTimestamp(), "raw"))
+                .toList();
+
+        TransactionStore plain = new TransactionStore(new IngestDedupProperties());
+        TransactionStore deduplicated = new TransactionStore(dedup(Duration.ofMinutes(10)));
+        for (List<TransactionRecord> batch : batchesA) {
+            plain.ingest("A", batch);
+            deduplicated.ingest("A", batch);
+        }
+        plain.ingest("B", listB);
+        deduplicated.ingest("B", listB);
+
+        ReconciliationService service = new ReconciliationService();
+        ReconciliationJob.JobSummary expected = service.summarize(
+                service.reconcile(plain.snapshot("A"), plain.snapshot("B"), 1000, BigDecimal.ZERO));
+        ReconciliationJob.JobSummary actual = service.summarize(
+                service.reconcile(deduplicated.snapshot("A"), deduplicated.snapshot("B"), 1000, BigDecimal.ZERO));
+
+        assertTrue(expected.getDuplicates() > 0);
+        assertFalse(deduplicated.snapshot("A").duplicates().isEmpty());
+        assertTrue(deduplicated.snapshot("A").size() < plain.snapshot("A").size());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,177 @@
+package com.pswied.tubingen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pswied.tubingen.model.ExportManifest;
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private static final TransactionRecord REC_A = new TransactionRecord("A", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "a,\"quoted\"");
+    private static final TransactionRecord REC_B = new TransactionRecord("B", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw");
+    private static final List<ReconciliationMatch> MATCHES = List.of(
+            new ReconciliationMatch(ReconciliationMatch.MatchType.MATCHED, REC_A, REC_B),
+            new ReconciliationMatch(ReconciliationMatch.MatchType.MISSING_IN_SOURCE_A, null, REC_B),
+            new ReconciliationMatch(ReconciliationMatch.MatchType.MATCHED, REC_A, REC_B));
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testNdjsonPartitionedByMatchType() throws IOException {
+        ExportService service = new ExportService(objectMapper, tempDir.toString());
+
+        List<ExportManifest.ExportFile> files = service.write("job1", MATCHES, ExportManifest.Format.NDJSON);
+
+        assertEquals(2, files.size());
+        ExportManifest.ExportFile matched = files.get(0);
+        assertEquals("MATCHED.ndjson.gz", matched.getName());
+        assertEquals(2, matched.getRecords());
+
+        String[] lines = gunzip(tempDir.resolve("job1").resolve(matched.getName())).split("\n");
+        assertEquals(2, lines.length);
+        ReconciliationMatch parsed = objectMapper.readValue(lines[0], ReconciliationMatch.class);
+        assertEquals(MATCHES.get(0), parsed);
+        assertFalse(Files.exists(tempDir.resolve("job1").resolve("MATCHED.ndjson.gz.part")));
+    }
+
+    @Test
+    void testCsvEscaping() throws IOException {
+        ExportService service = new ExportService(objectMapper, tempDir.toString());
+
+        List<ExportManifest.ExportFile> files = service.write("job2", MATCHES, ExportManifest.Format.CSV);
+
+        String matched = gunzip(tempDir.resolve("job2").resolve("MATCHED.csv.gz"));
+        assertTrue(matched.startsWith("type,sourceA,"));
+        assertTrue(matched.contains("MATCHED,A,TX1,100.00,2023-10-27T10:00:00Z,\"a,\"\"quoted\"\"\",B,TX1,100.00,2023-10-27T10:00:00Z,raw\n"));
+        String missing = gunzip(tempDir.resolve("job2").resolve(files.get(1).getName()));
+        assertTrue(missing.contains("MISSING_IN_SOURCE_A,,,,,,B,TX1,"));
+    }
+
+    @Test
+    void testBackgroundExportAndTransfer() throws Exception {
+        ExportService service = new ExportService(objectMapper, tempDir.toString());
+
+        assertEquals("RUNNING", service.startExport("job3", MATCHES, ExportManifest.Format.NDJSON).getStatus());
+        ExportManifest manifest = service.getManifest("job3");
+        for (int i = 0; i < 100 && "RUNNING".equals(manifest.getStatus()); i++) {
+            Thread.sleep(20);
+            manifest = service.getManifest("job3");
+        }
+        assertEquals("COMPLETED", manifest.getStatus());
+        assertNull(service.exportFile("job3", "../../etc/passwd"));
+
+        Path file = service.exportFile("job3", "MATCHED.ndjson.gz");
+        byte[] expected = Files.readAllBytes(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.transfer(file, 10, 20, out);
+        assertArrayEquals(java.util.Arrays.copyOfRange(expected, 10, 30), out.toByteArray());
+        service.shutdown();
+    }
+
+    @Test
+    void testFailedExportIsReportedAndCleanedUp() throws Exception {
+        // Without the java.time module the first record cannot be serialized
+        ExportService service = new ExportService(new ObjectMapper(), tempDir.toString());
+
+        service.startExport("job4", MATCHES, ExportManifest.Format.NDJSON);
+        ExportManifest manifest = service.getManifest("job4");
+        for (int i = 0; i < 100 && "RUNNING".equals(manifest.getStatus()); i++) {
+            Thread.sleep(20);
+            manifest = service.getManifest("job4");
+        }
+        service.shutdown();
+
+        assertEquals("FAILED", manifest.getStatus());
+        assertNotNull(manifest.getError());
+        try (var files = Files.list(tempDir.resolve("job4"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testConcurrentStartsRunOneExport() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExportService service = new ExportService(objectMapper, tempDir.toString()) {
+            @Override
+            List<ExportManifest.ExportFile> write(String jobId, List<ReconciliationMatch> matches, ExportManifest.Format format)
+                    throws IOException {
+                writes.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.write(jobId, matches, format);
+            }
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ExportManifest>> started = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            started.add(callers.submit(() -> {
+                start.await();
+                return service.startExport("job5", MATCHES, ExportManifest.Format.NDJSON);
+            }));
+        }
+        start.countDown();
+        ExportManifest first = started.get(0).get();
+        for (Future<ExportManifest> manifest : started) {
+            assertSame(first, manifest.get());
+        }
+        release.countDown();
+        callers.shutdown();
+        service.shutdown();
+
+        assertTrue(writes.get() <= 1, "writes: " + writes.get());
+    }
+
+    @Test
+    void testByteRangeParsing() {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 100));
+        assertNull(ByteRange.parse("items=0-1", 100));
+        assertNull(ByteRange.parse("bytes=9-3", 100));
+        assertNull(ByteRange.parse("bytes=--5", 100));
+        assertNull(ByteRange.parse("bytes=5--3", 100));
+        assertEquals(new ByteRange(0, 9), ByteRange.parse("bytes=0-9", 100));
+        assertEquals(new ByteRange(90, 99), ByteRange.parse("bytes=90-", 100));
+        assertEquals(new ByteRange(90, 99), ByteRange.parse("bytes=90-500", 100));
+        assertEquals(new ByteRange(80, 99), ByteRange.parse("bytes=-20", 100));
+        assertEquals(new ByteRange(0, 99), ByteRange.parse("bytes=-500", 100));
+        assertFalse(ByteRange.parse("bytes=100-", 100).isSatisfiable());
+        assertFalse(ByteRange.parse("bytes=-0", 100).isSatisfiable());
+        assertEquals(10, new ByteRange(0, 9).length());
+    }
+}
@@ -1,7 +1,11 @@
 package com.pswied.tubingen.service;
 
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.model.MatchKey;
 import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.SortedRuns;
 import com.pswied.tubingen.model.TransactionRecord;
+import com.pswied.tubingen.service.matchkey.MatchKeyEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -16,6 +20,13 @@ class ReconciliationServiceTest {
 
     private ReconciliationService service;
 
+    private static MatchKeyProperties.Field delimited(int index) {
+        MatchKeyProperties.Field field = new MatchKeyProperties.Field();
+        field.setKind(MatchKeyProperties.Kind.DELIMITED);
+        field.setIndex(index);
+        return field;
+    }
+
     @BeforeEach
     void setUp() {
         service = new ReconciliationService();
@@ -202,4 +213,120 @@ class ReconciliationServiceTest {
         assertTrue(results.stream().anyMatch(r -> r.getType() == ReconciliationMatch.MatchType.MISSING_IN_SOURCE_B));
         assertTrue(results.stream().anyMatch(r -> r.getType() == ReconciliationMatch.MatchType.MISSING_IN_SOURCE_A));
     }
+
+    @Test
+    void testCompositeMatchKeyTakesPrecedenceOverTransactionId() {
+        TransactionRecord recA = new TransactionRecord("A", "SWITCH-1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw");
+        recA.setMatchKey(MatchKey.of(123L, "RRN1", "TERM1"));
+        TransactionRecord recB = new TransactionRecord("B", "CORE-9", new BigDecimal("100.00"), Instant.parse("2023-10-27T12:00:00Z"), "raw");
+        recB.setMatchKey(MatchKey.of(123L, "RRN1", "TERM1"));
+
+        // Far apart in time with different IDs: only the composite key can pair them
+        List<ReconciliationMatch> results = service.reconcile(
+                SortedRuns.of(new ArrayList<>(List.of(recA))), SortedRuns.of(new ArrayList<>(List.of(recB))), 0, BigDecimal.ZERO, 0, true);
+
+        assertEquals(1, results.size());
+        assertEquals(ReconciliationMatch.MatchType.MATCHED, results.get(0).getType());
+    }
+
+    @Test
+    void testPayloadMissingKeyColumnIsNotJoinedOnTransactionId() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        properties.getSources().put("A", List.of(delimited(0), delimited(1)));
+        properties.getSources().put("B", List.of(delimited(0), delimited(1)));
+        MatchKeyEngine engine = new MatchKeyEngine(properties);
+
+        List<TransactionRecord> listA = new ArrayList<>();
+        listA.add(new TransactionRecord("A", "SW-1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "123|RRN1"));
+        listA.add(new TransactionRecord("A", "SW-2", new BigDecimal("50.00"), Instant.parse("2023-10-27T10:00:00Z"), "124|RRN2"));
+        List<TransactionRecord> listB = new ArrayList<>();
+        listB.add(new TransactionRecord("B", "CORE-1", new BigDecimal("100.00"), Instant.parse("2023-10-27T12:00:00Z"), "123|RRN1"));
+        // Missing the RRN column: cannot be keyed, although its ID equals an A record's
+        listB.add(new TransactionRecord("B", "SW-2", new BigDecimal("50.00"), Instant.parse("2023-10-27T12:00:00Z"), "124"));
+        assertEquals(0, engine.assignKeys(listA));
+        assertEquals(1, engine.assignKeys(listB));
+
+        var summary = service.summarize(service.reconcile(SortedRuns.of(listA), SortedRuns.of(listB), 0, BigDecimal.ZERO, 0, true));
+
+        assertEquals(1, summary.getMatched());
+        assertEquals(1, summary.getMissingInSourceA());
+        assertEquals(1, summary.getMissingInSourceB());
+    }
+
+    @Test
+    void testAllUnkeyableJobIsNotJoinedOnTransactionId() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        properties.getSources().put("A", List.of(delimited(0), delimited(1)));
+        properties.getSources().put("B", List.of(delimited(0), delimited(1)));
+        MatchKeyEngine engine = new MatchKeyEngine(properties);
+
+        // Neither side can be keyed, so nothing in the data says match keys are configured
+        List<TransactionRecord> listA = new ArrayList<>();
+        listA.add(new TransactionRecord("A", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "123"));
+        List<TransactionRecord> listB = new ArrayList<>();
+        listB.add(new TransactionRecord("B", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T12:00:00Z"), "123"));
+        assertEquals(1, engine.assignKeys(listA));
+        assertEquals(1, engine.assignKeys(listB));
+
+        var keyed = service.summarize(service.reconcile(
+                SortedRuns.of(listA), SortedRuns.of(listB), 0, BigDecimal.ZERO, 0, engine.isEnabled()));
+        assertEquals(0, keyed.getMatched());
+        assertEquals(1, keyed.getMissingInSourceA());
+        assertEquals(1, keyed.getMissingInSourceB());
+
+        var byId = service.summarize(service.reconcile(SortedRuns.of(listA), SortedRuns.of(listB), 0, BigDecimal.ZERO, 0, false));
+        assertEquals(1, byId.getMatched());
+    }
+
+    @Test
+    void testFuzzyMatchAcrossUnorderedRuns() {
+        List<TransactionRecord> listA = new ArrayList<>();
+        listA.add(new TransactionRecord("A", "A2", new BigDecimal("200.00"), Instant.parse("2023-10-27T10:05:00Z"), "raw"));
+        listA.add(new TransactionRecord("A", "A1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw"));
+
+        List<TransactionRecord> listB = new ArrayList<>();
+        listB.add(new TransactionRecord("B", "B1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:02Z"), "raw"));
+        listB.add(new TransactionRecord("B", "B2", new BigDecimal("200.00"), Instant.parse("2023-10-27T10:05:02Z"), "raw"));
+
+        List<ReconciliationMatch> results = service.reconcile(listA, listB, 5000, BigDecimal.ZERO);
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getType() == ReconciliationMatch.MatchType.MATCHED));
+    }
+
+    @Test
+    void testSplitSettlement() {
+        List<TransactionRecord> listA = new ArrayList<>();
+        listA.add(new TransactionRecord("A", "SW1", new BigDecimal("40.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw"));
+        listA.add(new TransactionRecord("A", "SW2", new BigDecimal("60.00"), Instant.parse("2023-10-27T10:00:03Z"), "raw"));
+
+        List<TransactionRecord> listB = new ArrayList<>();
+        listB.add(new TransactionRecord("B", "NET1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:05Z"), "raw"));
+
+        // Disabled by default: everything is missing
+        var summary = service.summarize(service.reconcile(listA, listB, 10000, BigDecimal.ZERO));
+        assertEquals(0, summary.getSplitMatched());
+        assertEquals(1, summary.getMissingInSourceA());
+
+        summary = service.summarize(service.reconcile(SortedRuns.of(listA), SortedRuns.of(listB), 10000, BigDecimal.ZERO, 3, false));
+        assertEquals(2, summary.getSplitMatched());
+        assertEquals(0, summary.getMissingInSourceA());
+        assertEquals(0, summary.getMissingInSourceB());
+    }
+
+    @Test
+    void testIngestTimeDuplicatesAreReported() {
+        TransactionRecord first = new TransactionRecord("A", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw");
+        TransactionRecord retry = new TransactionRecord("A", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:01Z"), "raw");
+        TransactionRecord recB = new TransactionRecord("B", "TX1", new BigDecimal("100.00"), Instant.parse("2023-10-27T10:00:00Z"), "raw");
+
+        List<ReconciliationMatch> results = service.reconcile(
+                SortedRuns.of(new ArrayList<>(List.of(first)), new int[]{0}, List.of(retry)),
+                SortedRuns.of(new ArrayList<>(List.of(recB))), 0, BigDecimal.ZERO);
+
+        var summary = service.summarize(results);
+        assertEquals(1, summary.getDuplicates());
+        assertEquals(1, summary.getMatched());
+        assertTrue(results.stream().anyMatch(m -> m.getType() == ReconciliationMatch.MatchType.DUPLICATE && m.getTransactionA() == retry));
+    }
 }
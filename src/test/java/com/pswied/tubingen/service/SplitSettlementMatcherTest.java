@@ -0,0 +1,137 @@
+package com.pswied.tubingen.service;
+
+import com.pswied.tubingen.model.ReconciliationMatch;
+import com.pswied.tubingen.model.TransactionRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitSettlementMatcherTest {
+
+    private static final Instant T0 = Instant.parse("2023-10-27T10:00:00Z");
+
+    private static TransactionRecord record(String source, String id, String amount, long offsetSeconds) {
+        return new TransactionRecord(source, id, new BigDecimal(amount), T0.plusSeconds(offsetSeconds), "raw");
+    }
+
+    @Test
+    void testNetEntryInBMatchesSeveralA() {
+        List<TransactionRecord> leftoverA = new ArrayList<>(List.of(
+                record("A", "A1", "100.00", 0), record("A", "A2", "75.00", 5), record("A", "A3", "999.00", 6), record("A", "A4", "25.00", 10)));
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(record("B", "NET", "200.00", 30)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        new SplitSettlementMatcher(3, 1000, 60_000, BigDecimal.ZERO).match(leftoverA, leftoverB, results);
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getType() == ReconciliationMatch.MatchType.SPLIT_MATCHED
+                && r.getTransactionB().getTransactionId().equals("NET")));
+        assertEquals(List.of("A3"), leftoverA.stream().map(TransactionRecord::getTransactionId).toList());
+        assertTrue(leftoverB.isEmpty());
+    }
+
+    @Test
+    void testNetEntryInAMatchesSeveralB() {
+        List<TransactionRecord> leftoverA = new ArrayList<>(List.of(record("A", "NET", "-50.00", 0)));
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(
+                record("B", "B1", "-20.00", 1), record("B", "B2", "-30.01", 2)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        new SplitSettlementMatcher(2, 1000, 5_000, new BigDecimal("0.01")).match(leftoverA, leftoverB, results);
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getTransactionA().getTransactionId().equals("NET")));
+        assertTrue(leftoverA.isEmpty());
+        assertTrue(leftoverB.isEmpty());
+    }
+
+    @Test
+    void testRespectsTimeToleranceAndPartLimit() {
+        List<TransactionRecord> leftoverA = new ArrayList<>(List.of(
+                record("A", "A1", "10.00", 0), record("A", "A2", "10.00", 1), record("A", "A3", "10.00", 2),
+                record("A", "LATE", "20.00", 600)));
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(record("B", "NET", "30.00", 0)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        // Three parts would be needed, but only two are allowed; LATE is outside the window
+        new SplitSettlementMatcher(2, 1000, 10_000, BigDecimal.ZERO).match(leftoverA, leftoverB, results);
+
+        assertTrue(results.isEmpty());
+        assertEquals(4, leftoverA.size());
+        assertEquals(1, leftoverB.size());
+    }
+
+    @Test
+    void testStopsWhenBudgetIsSpent() {
+        List<TransactionRecord> leftoverA = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            leftoverA.add(record("A", "A" + i, "1.00", i));
+        }
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(record("B", "NET", "4.50", 20)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        // Reachable in total but no combination of whole amounts hits 4.50
+        SplitSettlementMatcher matcher = new SplitSettlementMatcher(5, 50, 60_000, BigDecimal.ZERO);
+        matcher.match(leftoverA, leftoverB, results);
+
+        assertTrue(results.isEmpty());
+        assertEquals(0, matcher.getRemainingBudget());
+    }
+
+    @Test
+    void testScanningTheWindowIsCharged() {
+        // A dense window of the wrong sign: no candidates, but every record visited costs budget
+        List<TransactionRecord> leftoverA = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            leftoverA.add(record("A", "A" + i, "-1.00", i / 100));
+        }
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(
+                record("B", "NET1", "2.00", 50), record("B", "NET2", "2.00", 51)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        SplitSettlementMatcher matcher = new SplitSettlementMatcher(2, 500, 60_000, BigDecimal.ZERO);
+        matcher.match(leftoverA, leftoverB, results);
+
+        assertTrue(results.isEmpty());
+        assertEquals(0, matcher.getRemainingBudget());
+    }
+
+    @Test
+    void testCandidatesAreTheClosestInTime() {
+        // More than MAX_CANDIDATES parts in the window; the pair that sums to NET sits right next to it
+        List<TransactionRecord> leftoverA = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            leftoverA.add(record("A", "FAR" + i, "1.00", i));
+        }
+        leftoverA.add(record("A", "NEAR1", "40.00", 100));
+        leftoverA.add(record("A", "NEAR2", "60.00", 101));
+        for (int i = 0; i < 30; i++) {
+            leftoverA.add(record("A", "LATE" + i, "1.00", 200 + i));
+        }
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(record("B", "NET", "100.00", 100)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        new SplitSettlementMatcher(2, 1000, 600_000, BigDecimal.ZERO).match(leftoverA, leftoverB, results);
+
+        assertEquals(List.of("NEAR1", "NEAR2"),
+                results.stream().map(r -> r.getTransactionA().getTransactionId()).sorted().toList());
+    }
+
+    @Test
+    void testHugeMaxPartsIsCapped() {
+        List<TransactionRecord> leftoverA = new ArrayList<>(List.of(
+                record("A", "A1", "100.00", 0), record("A", "A2", "75.00", 5), record("A", "A4", "25.00", 10)));
+        List<TransactionRecord> leftoverB = new ArrayList<>(List.of(record("B", "NET", "200.00", 30)));
+        List<ReconciliationMatch> results = new ArrayList<>();
+
+        new SplitSettlementMatcher(Integer.MAX_VALUE, 1000, 60_000, BigDecimal.ZERO).match(leftoverA, leftoverB, results);
+
+        assertEquals(3, results.size());
+        assertTrue(leftoverA.isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package com.pswied.tubingen.service.matchkey;
+
+import com.pswied.tubingen.config.MatchKeyProperties;
+import com.pswied.tubingen.model.MatchKey;
+import com.pswied.tubingen.model.TransactionRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchKeyEngineTest {
+
+    private static MatchKeyProperties.Field fixed(int offset, int length, ColumnType type) {
+        MatchKeyProperties.Field field = new MatchKeyProperties.Field();
+        field.setKind(MatchKeyProperties.Kind.FIXED);
+        field.setOffset(offset);
+        field.setLength(length);
+        field.setType(type);
+        return field;
+    }
+
+    private static MatchKeyProperties.Field delimited(int index, ColumnType type) {
+        MatchKeyProperties.Field field = new MatchKeyProperties.Field();
+        field.setKind(MatchKeyProperties.Kind.DELIMITED);
+        field.setIndex(index);
+        field.setType(type);
+        return field;
+    }
+
+    private static MatchKeyProperties.Field json(String pointer, ColumnType type) {
+        MatchKeyProperties.Field field = new MatchKeyProperties.Field();
+        field.setKind(MatchKeyProperties.Kind.JSON_POINTER);
+        field.setPointer(pointer);
+        field.setType(type);
+        return field;
+    }
+
+    private static MatchKeyEngine engine() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        // A: fixed-width switch log "STAN(6)RRN(12)TID(8)"
+        properties.getSources().put("A", List.of(
+                fixed(0, 6, ColumnType.NUMERIC), fixed(6, 12, ColumnType.TEXT), fixed(18, 8, ColumnType.TEXT)));
+        // B: JSON core banking record
+        properties.getSources().put("B", List.of(
+                json("/stan", ColumnType.NUMERIC), json("/rrn", ColumnType.TEXT), json("/terminal/id", ColumnType.TEXT)));
+        return new MatchKeyEngine(properties);
+    }
+
+    @Test
+    void testFixedAndJsonKeysLineUp() {
+        MatchKeyEngine engine = engine();
+
+        MatchKey keyA = engine.extract("A", "000123RRN000000001TERM0001");
+        MatchKey keyB = engine.extract("b", "{\"stan\":\"123\",\"rrn\":\"RRN000000001\",\"terminal\":{\"id\":\"TERM0001\"}}");
+
+        assertNotNull(keyA);
+        assertEquals(123L, keyA.get(0));
+        assertEquals(keyA, keyB);
+        assertEquals(keyA.hashCode(), keyB.hashCode());
+    }
+
+    @Test
+    void testMissingColumnYieldsNoKey() {
+        MatchKeyEngine engine = engine();
+
+        assertNull(engine.extract("A", "000123"));
+        assertNull(engine.extract("B", "{\"stan\":\"123\"}"));
+        assertNull(engine.extract("B", "not json"));
+        assertNull(engine.extract("C", "000123RRN000000001TERM0001"));
+        assertNull(engine.extract("A", null));
+    }
+
+    @Test
+    void testDelimitedExtractor() {
+        DelimitedFieldExtractor extractor = new DelimitedFieldExtractor('|', 2, ColumnType.TEXT);
+
+        assertEquals("E2E-42", extractor.extract(new Payload("x|y|E2E-42|z")));
+        assertEquals("E2E-42", extractor.extract(new Payload("x|y|E2E-42")));
+        assertNull(extractor.extract(new Payload("x|y")));
+        assertNull(new DelimitedFieldExtractor('|', 1, ColumnType.NUMERIC).extract(new Payload("x|abc")));
+    }
+
+    @Test
+    void testAssignKeys() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        properties.getSources().put("A", List.of(delimited(1, ColumnType.TEXT)));
+        properties.getSources().put("B", List.of(json("/e2e", ColumnType.TEXT)));
+        MatchKeyEngine engine = new MatchKeyEngine(properties);
+        TransactionRecord record = new TransactionRecord("A", "TX1", BigDecimal.ONE, Instant.now(), "pacs.008|E2E-1");
+        TransactionRecord unkeyed = new TransactionRecord("B", "TX1", BigDecimal.ONE, Instant.now(), "{\"other\":1}");
+
+        assertEquals(1, engine.assignKeys(List.of(record, unkeyed)));
+
+        assertTrue(engine.isEnabled());
+        assertEquals(MatchKey.of("E2E-1"), record.getMatchKey());
+        assertNull(unkeyed.getMatchKey());
+    }
+
+    @Test
+    void testOneSidedConfigurationRejected() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        properties.getSources().put("A", List.of(delimited(1, ColumnType.TEXT)));
+
+        assertThrows(IllegalStateException.class, () -> new MatchKeyEngine(properties));
+    }
+
+    @Test
+    void testDisabledWithoutConfiguration() {
+        MatchKeyEngine engine = new MatchKeyEngine(new MatchKeyProperties());
+        TransactionRecord record = new TransactionRecord("A", "TX1", BigDecimal.ONE, Instant.now(), "raw");
+
+        engine.assignKeys(List.of(record));
+
+        assertFalse(engine.isEnabled());
+        assertNull(record.getMatchKey());
+    }
+
+    @Test
+    void testMisalignedColumnsRejected() {
+        MatchKeyProperties properties = new MatchKeyProperties();
+        properties.getSources().put("A", List.of(fixed(0, 6, ColumnType.NUMERIC)));
+        properties.getSources().put("B", List.of(json("/e2e", ColumnType.TEXT)));
+
+        assertThrows(IllegalStateException.class, () -> new MatchKeyEngine(properties));
+    }
+}